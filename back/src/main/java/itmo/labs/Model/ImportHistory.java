@@ -12,14 +12,30 @@ import jakarta.persistence.Enumerated;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.SequenceGenerator;
+import jakarta.persistence.Table;
 
+import org.hibernate.annotations.ColumnDefault;
+
+import itmo.labs.utils.ImportCompression;
+
+/**
+ * An import of a file, which is also its job in the import queue: PENDING
+ * rows are claimed by {@link itmo.labs.service.ImportJobWorker}
+ */
 @Entity
 @Getter
 @Setter
+@Table(indexes = {
+        @Index(name = "idx_import_history_status_id", columnList = "status, id"),
+        @Index(name = "idx_import_history_user_hash", columnList = "performedBy, contentHash")
+})
 public class ImportHistory {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "import_history_seq")
+    @SequenceGenerator(name = "import_history_seq", sequenceName = "import_history_seq", allocationSize = 50)
     private Long id;
 
     private LocalDateTime timestamp;
@@ -29,15 +45,79 @@ public class ImportHistory {
     private String performedBy;
 
     @Column(length = 1024)
-    private String fileUrl;
+    private int recordsImported;
+
+    // rows of a CHUNKED import that could not be saved, and rows left after it gave up
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    private int recordsFailed;
+
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    private int recordsSkipped;
+
+    // entries of a CHUNKED import handled in committed chunks; a retried job continues after them
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    private int checkpoint;
 
+    // MinIO object listing the failed rows of a CHUNKED import
     @Column(length = 1024)
-    private int recordsImported;
+    private String errorReportKey;
+
+    // MinIO object the worker reads the file from, download URLs are signed on demand
+    @Column(length = 1024)
+    private String objectKey;
+
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    private long fileSize;
+
+    // hex SHA-256 of the file, computed while it is uploaded; the same content is not imported twice
+    @Column(length = 64)
+    private String contentHash;
+
+    private LocalDateTime startedAt;
+
+    // renewed by the worker running the job; a stale heartbeat lets another worker take the job over
+    private LocalDateTime heartbeatAt;
+
+    // also the fencing token of the current claim
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    private int attempts;
+
+    @Enumerated(EnumType.STRING)
+    private ImportMode mode = ImportMode.ENTITY;
+
+    // name of the RouteImportFormat of the file, null for imports queued before there were several
+    @Column(length = 16)
+    private String format;
+
+    // the file is stored as uploaded and decompressed while it is parsed
+    @Enumerated(EnumType.STRING)
+    @Column(length = 8)
+    private ImportCompression compression = ImportCompression.NONE;
 
     public enum ImportStatus {
         SUCCESS,
         PENDING,
+        RUNNING,
+        // a CHUNKED import that committed some rows and failed, skipped or did not reach others
+        PARTIAL,
         FAILURE
     }
+
+    public enum ImportMode {
+        // through RouteService, one entity per entry
+        ENTITY,
+        // COPY into a staging table and set-based inserts
+        BULK,
+        // through RouteService in separately committed chunks, failed rows are reported instead of
+        // rolling back the file
+        CHUNKED
+    }
+    // validation reports list many errors
+    @Column(length = 4000)
     private String errorMessage = null;
 }
\ No newline at end of file
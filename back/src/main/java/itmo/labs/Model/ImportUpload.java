@@ -0,0 +1,64 @@
+package itmo.labs.model;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+import org.hibernate.annotations.ColumnDefault;
+
+import itmo.labs.model.ImportHistory.ImportMode;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.Id;
+
+/**
+ * A resumable upload of an import file. Each chunk is stored in MinIO as a
+ * part object; when the last chunk arrives the parts are composed into the
+ * file and its import is queued
+ */
+@Entity
+@Getter
+@Setter
+public class ImportUpload {
+
+    // random, the ID is the only handle the client has on the upload
+    @Id
+    private String id;
+
+    @Column(nullable = false)
+    private String performedBy;
+
+    @Column(length = 1024, nullable = false)
+    private String objectKey;
+
+    private long size;
+
+    // bytes received so far, the offset the next chunk has to start at
+    private long uploadedBytes;
+
+    private int parts;
+
+    // keys of the stored parts in file order, one per line; parts stored before there were keys are numbered
+    @Column(columnDefinition = "text")
+    private String partKeys;
+
+    // null to choose by the size of the file
+    @Enumerated(EnumType.STRING)
+    private ImportMode mode;
+
+    // queue the file even if it was imported recently
+    @ColumnDefault("false")
+    @Column(nullable = false)
+    private boolean force;
+
+    private LocalDateTime createdAt;
+
+    private LocalDateTime updatedAt;
+
+    // set once the parts are composed and the import is queued
+    private Long importId;
+}
@@ -2,6 +2,10 @@ package itmo.labs.model;
 
 import java.time.LocalDateTime;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.ColumnDefault;
+
 import jakarta.persistence.*;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.Min;
@@ -11,12 +15,22 @@ import lombok.Getter;
 import lombok.Setter;
 
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 @Getter
 @Setter
+@Table(indexes = {
+        @Index(name = "idx_route_name_id", columnList = "name, id"),
+        @Index(name = "idx_route_rating_id", columnList = "rating, id"),
+        @Index(name = "idx_route_rating_created_by", columnList = "rating, created_by_id"),
+        @Index(name = "idx_route_creation_date_id", columnList = "creationDate, id"),
+        @Index(name = "idx_route_from_to", columnList = "from_location_id, to_location_id")
+})
 public class Route {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "route_seq")
+    @SequenceGenerator(name = "route_seq", sequenceName = "route_seq", allocationSize = 50)
     private Integer id;
 
     @NotBlank(message = "Route name cannot be null or empty")
@@ -56,4 +70,9 @@ public class Route {
     private User createdBy;
     @Column(name = "allow_admin_editing", nullable = false)
     private boolean allowAdminEditing = false;
+
+    @Version
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    private Long version;
 }
\ No newline at end of file
@@ -2,9 +2,6 @@ package itmo.labs.model;
 
 import java.time.LocalDateTime;
 
-import org.hibernate.annotations.OnDelete;
-import org.hibernate.annotations.OnDeleteAction;
-
 import jakarta.persistence.*;
 import lombok.Getter;
 import lombok.Setter;
@@ -19,10 +16,9 @@ public class RouteAudit {
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
-    @ManyToOne(fetch = FetchType.LAZY)
-    @JoinColumn(name = "route_id", nullable = false)
-    @OnDelete(action = OnDeleteAction.CASCADE)
-    private Route route;
+    // plain column, not a foreign key: the audit trail has to outlive deleted routes
+    @Column(name = "route_id", nullable = false)
+    private Integer routeId;
 
     @Enumerated(EnumType.STRING)
     @Column(nullable = false)
@@ -1,13 +1,33 @@
 package itmo.labs.repository;
 
 import itmo.labs.model.ImportHistory;
+import itmo.labs.model.ImportHistory.ImportStatus;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 @Repository
-public interface ImportHistoryRepository extends JpaRepository<ImportHistory, Long> {
+public interface ImportHistoryRepository extends JpaRepository<ImportHistory, Long>, JpaSpecificationExecutor<ImportHistory> {
     List<ImportHistory> findByPerformedBy(String performedBy);
+
+    Optional<ImportHistory> findFirstByPerformedByAndContentHashAndStatusInOrderByIdDesc(String performedBy,
+            String contentHash, Collection<ImportStatus> statuses);
+
+    Optional<ImportHistory> findFirstByPerformedByAndContentHashAndStatusAndTimestampAfterOrderByIdDesc(
+            String performedBy, String contentHash, ImportStatus status, LocalDateTime after);
+
+    /**
+     * Lock the import row until the end of the transaction and read how many
+     * times it has been claimed
+     */
+    @Query(value = "SELECT attempts FROM import_history WHERE id = :id FOR UPDATE", nativeQuery = true)
+    Integer lockAttempts(@Param("id") Long id);
 }
\ No newline at end of file
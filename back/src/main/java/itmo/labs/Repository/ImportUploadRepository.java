@@ -0,0 +1,33 @@
+package itmo.labs.repository;
+
+import itmo.labs.model.ImportUpload;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+@Repository
+public interface ImportUploadRepository extends JpaRepository<ImportUpload, String> {
+
+    /**
+     * Record a chunk stored under partKey, unless another request has stored
+     * a chunk at this offset first
+     *
+     * @return 1 if the upload moved to the new offset
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "UPDATE import_upload SET uploaded_bytes = :next, parts = parts + 1, "
+            + "part_keys = concat(part_keys, :partKey, chr(10)), updated_at = localtimestamp "
+            + "WHERE id = :id AND uploaded_bytes = :expected AND import_id IS NULL", nativeQuery = true)
+    int advance(@Param("id") String id, @Param("expected") long expected, @Param("next") long next,
+            @Param("partKey") String partKey);
+
+    List<ImportUpload> findByUpdatedAtBefore(LocalDateTime updatedAt);
+}
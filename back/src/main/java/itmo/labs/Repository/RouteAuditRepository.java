@@ -1,11 +1,20 @@
 package itmo.labs.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import itmo.labs.model.RouteAudit;
 
 @Repository
-public interface RouteAuditRepository extends JpaRepository<RouteAudit, Long> {
+public interface RouteAuditRepository extends JpaRepository<RouteAudit, Long>, JpaSpecificationExecutor<RouteAudit> {
 
+    @Modifying
+    @Query(value = "INSERT INTO route_audit (route_id, operation_type, timestamp, performed_by_id, description) "
+            + "SELECT id, 'DELETE', now(), :userId, 'Route deleted with ID: ' || id "
+            + "FROM unnest(CAST(:routeIds AS integer[])) AS id", nativeQuery = true)
+    int insertDeleteAudits(@Param("routeIds") Integer[] routeIds, @Param("userId") Integer userId);
 }
\ No newline at end of file
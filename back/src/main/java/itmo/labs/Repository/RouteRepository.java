@@ -1,11 +1,51 @@
 package itmo.labs.repository;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.hibernate.jpa.HibernateHints;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import itmo.labs.model.Route;
+import jakarta.persistence.QueryHint;
 
 @Repository
-public interface RouteRepository extends JpaRepository<Route, Integer> {
-    boolean existsByNameIgnoreCase(String name);
+public interface RouteRepository
+        extends JpaRepository<Route, Integer>, JpaSpecificationExecutor<Route>, RouteRepositoryCustom {
+    @EntityGraph(attributePaths = { "from", "to", "coordinates", "createdBy" })
+    List<Route> findByRatingLessThan(int rating);
+
+    @EntityGraph(attributePaths = { "from", "to", "coordinates", "createdBy" })
+    List<Route> findByIdIn(Collection<Integer> ids);
+
+    @Query(value = "SELECT r.id FROM route r WHERE r.name ILIKE :pattern ESCAPE '!' "
+            + "ORDER BY similarity(r.name, :substring) DESC, r.id", nativeQuery = true)
+    List<Integer> searchIdsByNameTrigram(@Param("pattern") String pattern, @Param("substring") String substring,
+            Pageable pageable);
+
+    @Query("SELECT lower(r.name) FROM Route r WHERE lower(r.name) IN :names")
+    List<String> findLowerNamesIn(@Param("names") Collection<String> names);
+
+    @Query("SELECT r FROM Route r JOIN FETCH r.from LEFT JOIN FETCH r.to JOIN FETCH r.coordinates JOIN FETCH r.createdBy "
+            + "WHERE lower(r.name) LIKE :pattern ESCAPE '!'")
+    List<Route> findByNameLowerLike(@Param("pattern") String pattern);
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT r FROM Route r JOIN FETCH r.from LEFT JOIN FETCH r.to JOIN FETCH r.coordinates JOIN FETCH r.createdBy "
+            + "ORDER BY r.id")
+    Stream<Route> streamAllWithDetails();
+
+    @Query("SELECT r FROM Route r JOIN FETCH r.from f JOIN FETCH r.to t JOIN FETCH r.coordinates JOIN FETCH r.createdBy "
+            + "WHERE lower(f.name) = lower(:fromName) AND lower(t.name) = lower(:toName)")
+    List<Route> findBetweenLocations(@Param("fromName") String fromName, @Param("toName") String toName,
+            Pageable pageable);
 }
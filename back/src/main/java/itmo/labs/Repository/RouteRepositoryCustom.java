@@ -0,0 +1,20 @@
+package itmo.labs.repository;
+
+import java.util.List;
+
+import itmo.labs.dto.RouteFilterDTO;
+
+public interface RouteRepositoryCustom {
+
+    /**
+     * Delete the routes matching the filter, together with their coordinates,
+     * with one set-based statement per table
+     *
+     * @param filter  the routes to delete
+     * @param userId  the user performing the deletion
+     * @param isAdmin whether the user may delete other users' routes that allow
+     *                admin editing
+     * @return IDs of the deleted routes
+     */
+    List<Integer> deleteByFilter(RouteFilterDTO filter, Integer userId, boolean isAdmin);
+}
@@ -0,0 +1,96 @@
+package itmo.labs.repository;
+
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import itmo.labs.dto.RouteFilterDTO;
+import itmo.labs.model.Coordinates;
+import itmo.labs.model.Route;
+import jakarta.persistence.Cache;
+import jakarta.persistence.EntityManagerFactory;
+
+public class RouteRepositoryCustomImpl implements RouteRepositoryCustom {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final EntityManagerFactory entityManagerFactory;
+
+    public RouteRepositoryCustomImpl(JdbcTemplate jdbcTemplate, EntityManagerFactory entityManagerFactory) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.entityManagerFactory = entityManagerFactory;
+    }
+
+    @Override
+    public List<Integer> deleteByFilter(RouteFilterDTO filter, Integer userId, boolean isAdmin) {
+        List<Object> params = new ArrayList<>();
+        String sql = deleteSql(filter, userId, isAdmin, params);
+
+        List<Integer> routeIds = new ArrayList<>();
+        List<Integer> coordinatesIds = new ArrayList<>();
+        jdbcTemplate.query(sql, (RowCallbackHandler) rs -> {
+            routeIds.add(rs.getInt("id"));
+            Integer coordinatesId = rs.getObject("coordinates_id", Integer.class);
+            if (coordinatesId != null) {
+                coordinatesIds.add(coordinatesId);
+            }
+        }, params.toArray());
+
+        if (!coordinatesIds.isEmpty()) {
+            jdbcTemplate.update(con -> {
+                PreparedStatement statement = con.prepareStatement("DELETE FROM coordinates WHERE id = ANY(?)");
+                statement.setArray(1, con.createArrayOf("integer", coordinatesIds.toArray()));
+                return statement;
+            });
+        }
+
+        // the rows were removed behind Hibernate's back
+        Cache cache = entityManagerFactory.getCache();
+        routeIds.forEach(id -> cache.evict(Route.class, id));
+        coordinatesIds.forEach(id -> cache.evict(Coordinates.class, id));
+        return routeIds;
+    }
+
+    /**
+     * Build the DELETE ... RETURNING statement of deleteByFilter
+     *
+     * @param params receives the statement's parameters in order
+     */
+    static String deleteSql(RouteFilterDTO filter, Integer userId, boolean isAdmin, List<Object> params) {
+        StringBuilder sql = new StringBuilder("DELETE FROM route WHERE (created_by_id = ?");
+        params.add(userId);
+        if (isAdmin) {
+            sql.append(" OR allow_admin_editing");
+        }
+        sql.append(")");
+        if (filter.getRating() != null) {
+            sql.append(" AND rating = ?");
+            params.add(filter.getRating());
+        }
+        if (filter.getOwnerId() != null) {
+            sql.append(" AND created_by_id = ?");
+            params.add(filter.getOwnerId());
+        }
+        if (filter.getFromLocation() != null) {
+            sql.append(" AND from_location_id IN (SELECT location_id FROM location WHERE lower(location_name) = lower(?))");
+            params.add(filter.getFromLocation());
+        }
+        if (filter.getToLocation() != null) {
+            sql.append(" AND to_location_id IN (SELECT location_id FROM location WHERE lower(location_name) = lower(?))");
+            params.add(filter.getToLocation());
+        }
+        if (filter.getCreatedAfter() != null) {
+            sql.append(" AND creation_date >= ?");
+            params.add(Timestamp.valueOf(filter.getCreatedAfter()));
+        }
+        if (filter.getCreatedBefore() != null) {
+            sql.append(" AND creation_date < ?");
+            params.add(Timestamp.valueOf(filter.getCreatedBefore()));
+        }
+        sql.append(" RETURNING id, coordinates_id");
+        return sql.toString();
+    }
+}
@@ -0,0 +1,27 @@
+package itmo.labs.repository;
+
+import org.springframework.data.jpa.domain.Specification;
+
+import itmo.labs.model.Route;
+import jakarta.persistence.criteria.JoinType;
+
+public class RouteSpecifications {
+
+    /**
+     * Fetch everything {@code RouteDTO.convertToDTO} reads in the same query,
+     * so converting a list of routes costs no extra statements
+     *
+     * @return the specification, without restrictions
+     */
+    public static Specification<Route> withDetails() {
+        return (root, query, cb) -> {
+            if (query.getResultType() != Long.class && query.getResultType() != long.class) {
+                root.fetch("from");
+                root.fetch("to", JoinType.LEFT);
+                root.fetch("coordinates");
+                root.fetch("createdBy");
+            }
+            return null;
+        };
+    }
+}
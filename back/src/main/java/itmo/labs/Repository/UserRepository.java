@@ -1,13 +1,17 @@
 package itmo.labs.repository;
 
 import itmo.labs.model.User;
+import jakarta.persistence.QueryHint;
 
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.QueryHints;
 
 import java.util.List;
 import java.util.Optional;
 
 public interface UserRepository extends JpaRepository<User, Integer> {
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     Optional<User> findByUsername(String username);
 
     List<User> findByAdminRoleRequestedTrue();
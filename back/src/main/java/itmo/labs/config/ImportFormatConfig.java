@@ -0,0 +1,32 @@
+package itmo.labs.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import itmo.labs.utils.CsvRouteParser;
+import itmo.labs.utils.JsonLinesRouteParser;
+import itmo.labs.utils.RouteImportFormat;
+import itmo.labs.utils.YamlRouteParser;
+
+/**
+ * Formats routes can be imported from; another format is added by
+ * declaring a {@link RouteImportFormat} bean
+ */
+@Configuration
+public class ImportFormatConfig {
+
+    @Bean
+    public RouteImportFormat yamlImportFormat() {
+        return new YamlRouteParser();
+    }
+
+    @Bean
+    public RouteImportFormat jsonLinesImportFormat() {
+        return new JsonLinesRouteParser();
+    }
+
+    @Bean
+    public RouteImportFormat csvImportFormat() {
+        return new CsvRouteParser();
+    }
+}
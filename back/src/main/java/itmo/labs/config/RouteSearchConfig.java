@@ -0,0 +1,27 @@
+package itmo.labs.config;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import itmo.labs.repository.RouteRepository;
+import itmo.labs.service.InMemoryRouteNameSearch;
+import itmo.labs.service.RouteNameSearch;
+import itmo.labs.service.TrigramRouteNameSearch;
+
+@Configuration
+public class RouteSearchConfig {
+
+    @Bean
+    @ConditionalOnProperty(name = "spring.datasource.driver-class-name", havingValue = "org.postgresql.Driver", matchIfMissing = true)
+    public RouteNameSearch trigramRouteNameSearch(RouteRepository routeRepository) {
+        return new TrigramRouteNameSearch(routeRepository);
+    }
+
+    @Bean
+    @ConditionalOnMissingBean(RouteNameSearch.class)
+    public RouteNameSearch inMemoryRouteNameSearch(RouteRepository routeRepository) {
+        return new InMemoryRouteNameSearch(routeRepository);
+    }
+}
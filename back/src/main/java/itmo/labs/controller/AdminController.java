@@ -1,16 +1,28 @@
 package itmo.labs.controller;
 
+import itmo.labs.dto.AuditStatsDTO;
+import itmo.labs.dto.CacheRegionStatsDTO;
+import itmo.labs.dto.PageDTO;
+import itmo.labs.dto.RouteAuditDTO;
 import itmo.labs.dto.RouteDTO;
+import itmo.labs.dto.StorageCleanupStatsDTO;
+import itmo.labs.model.OperationType;
 import itmo.labs.model.Route;
 import itmo.labs.model.User;
+import itmo.labs.service.CacheStatisticsService;
+import itmo.labs.service.RouteAuditLog;
+import itmo.labs.service.RouteAuditService;
 import itmo.labs.service.RouteService;
+import itmo.labs.service.StorageCleanupService;
 import itmo.labs.service.UserService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import jakarta.validation.Valid;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -19,11 +31,21 @@ import java.util.stream.Collectors;
 public class AdminController {
     private final RouteService routeService;
     private final UserService userService;
+    private final CacheStatisticsService cacheStatisticsService;
+    private final RouteAuditLog routeAuditLog;
+    private final RouteAuditService routeAuditService;
+    private final StorageCleanupService storageCleanupService;
 
     @Autowired
-    public AdminController(RouteService routeService, UserService userService) {
+    public AdminController(RouteService routeService, UserService userService,
+            CacheStatisticsService cacheStatisticsService, RouteAuditLog routeAuditLog,
+            RouteAuditService routeAuditService, StorageCleanupService storageCleanupService) {
         this.routeService = routeService;
         this.userService = userService;
+        this.cacheStatisticsService = cacheStatisticsService;
+        this.routeAuditLog = routeAuditLog;
+        this.routeAuditService = routeAuditService;
+        this.storageCleanupService = storageCleanupService;
     }
 
     /**
@@ -49,17 +71,77 @@ public class AdminController {
         return new ResponseEntity<>("Admin role approved successfully.", HttpStatus.OK);
     }
 
-    
+    /**
+     * Endpoint to get second-level cache hit/miss statistics
+     *
+     * @return statistics per cache region
+     */
+    @GetMapping("/cache-stats")
+    public ResponseEntity<List<CacheRegionStatsDTO>> getCacheStats() {
+        return new ResponseEntity<>(cacheStatisticsService.getSecondLevelCacheStats(), HttpStatus.OK);
+    }
+
+    /**
+     * Endpoint to get the state of the route audit pipeline
+     *
+     * @return queue depth and written/dropped/failed counters
+     */
+    @GetMapping("/audit-stats")
+    public ResponseEntity<AuditStatsDTO> getAuditStats() {
+        return new ResponseEntity<>(routeAuditLog.getStats(), HttpStatus.OK);
+    }
+
+    /**
+     * Endpoint to get the state of the removal of stored import files
+     *
+     * @return outbox backlog and removed/failed/orphan counters
+     */
+    @GetMapping("/storage-cleanup-stats")
+    public ResponseEntity<StorageCleanupStatsDTO> getStorageCleanupStats() {
+        return new ResponseEntity<>(storageCleanupService.getStats(), HttpStatus.OK);
+    }
+
+    /**
+     * Endpoint to browse the route audit log
+     *
+     * @param routeId       only records of this route
+     * @param userId        only records of changes by this user
+     * @param operationType only records of this kind of change
+     * @param from          only records at or after this time (ISO 8601)
+     * @param to            only records before this time (ISO 8601)
+     * @param after         the cursor of the previous page
+     * @param size          the page size
+     * @param sortBy        "timestamp" or "id"
+     * @return page of audit records with the cursor of the next page
+     */
+    @GetMapping("/audit")
+    public ResponseEntity<PageDTO<RouteAuditDTO>> getAudit(
+            @RequestParam(required = false) Integer routeId,
+            @RequestParam(required = false) Integer userId,
+            @RequestParam(required = false) OperationType operationType,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) String after,
+            @RequestParam(required = false) Integer size,
+            @RequestParam(defaultValue = "timestamp") String sortBy) {
+        PageDTO<RouteAuditDTO> page = routeAuditService.getAudit(routeId, userId, operationType, from, to,
+                after, size, sortBy);
+        return new ResponseEntity<>(page, HttpStatus.OK);
+    }
 
     /**
      * Get all routes where the name contains the specified substring
      *
      * @param substring the substring to search for in route names
-     * @return list of matching routes
+     * @param page      the page number, starting from 0
+     * @param size      the page size
+     * @return list of matching routes, most relevant first
      */
     @GetMapping("/routes/searchByName")
-    public ResponseEntity<List<RouteDTO>> getRoutesByNameContains(@RequestParam String substring) {
-        List<Route> routes = routeService.getRoutesByNameContains(substring);
+    public ResponseEntity<List<RouteDTO>> getRoutesByNameContains(@RequestParam String substring,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(required = false) Integer size) {
+        List<Route> routes = routeService.getRoutesByNameContains(substring, page, size);
         List<RouteDTO> routeDTOs = routes.stream()
                 .map(RouteDTO::convertToDTO)
                 .collect(Collectors.toList());
@@ -1,29 +1,42 @@
 package itmo.labs.controller;
 
+import itmo.labs.dto.PageDTO;
 import itmo.labs.model.Location;
+import itmo.labs.service.DatasetVersionService;
 import itmo.labs.service.LocationService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
-
-import java.util.List;
+import org.springframework.web.context.request.WebRequest;
 
 @RestController
 @RequestMapping("/api/locations")
 public class LocationController {
 
     private final LocationService locationService;
+    private final DatasetVersionService datasetVersionService;
 
     @Autowired
-    public LocationController(LocationService locationService) {
+    public LocationController(LocationService locationService, DatasetVersionService datasetVersionService) {
         this.locationService = locationService;
+        this.datasetVersionService = datasetVersionService;
     }
 
     @GetMapping
-    public ResponseEntity<List<Location>> getAllLocations() {
-        List<Location> locations = locationService.findAllLocations();
-        return ResponseEntity.ok(locations);
+    public ResponseEntity<PageDTO<Location>> getAllLocations(
+            @RequestParam(required = false) String after,
+            @RequestParam(required = false) Integer size,
+            @RequestParam(defaultValue = "id") String sortBy,
+            WebRequest request) {
+        String etag = datasetVersionService.etag();
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+        PageDTO<Location> locations = locationService.findAllLocations(after, size, sortBy);
+        return ResponseEntity.ok().eTag(etag).cacheControl(CacheControl.noCache()).body(locations);
     }
 }
\ No newline at end of file
@@ -1,15 +1,28 @@
 package itmo.labs.controller;
 
+import itmo.labs.dto.PageDTO;
 import itmo.labs.dto.RouteDTO;
+import itmo.labs.dto.RouteFilterDTO;
 import itmo.labs.model.Route;
+import itmo.labs.service.DatasetVersionService;
 import itmo.labs.service.RouteService;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
 import jakarta.validation.Valid;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -17,9 +30,17 @@ import java.util.stream.Collectors;
 @RequestMapping("/api/routes")
 public class RouteController {
 
+    private static final String NDJSON = "application/x-ndjson";
+
     @Autowired
     private RouteService routeService;
 
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private DatasetVersionService datasetVersionService;
+
     /**
      * Create a new Route
      *
@@ -45,6 +66,19 @@ public class RouteController {
         return new ResponseEntity<>("Routes with rating " + rating + " deleted successfully.", HttpStatus.OK);
     }
 
+    /**
+     * Delete all routes matching a filter in one statement
+     *
+     * @param filter the criteria (rating, owner, from/to location, creation
+     *               date range), at least one is required
+     * @return IDs of the deleted routes
+     */
+    @PostMapping("/bulk-delete")
+    public ResponseEntity<List<Integer>> deleteRoutesByFilter(@RequestBody RouteFilterDTO filter) {
+        List<Integer> deletedIds = routeService.deleteRoutesByFilter(filter);
+        return new ResponseEntity<>(deletedIds, HttpStatus.OK);
+    }
+
     /**
      * Get all routes with rating less than the specified value
      *
@@ -66,14 +100,18 @@ public class RouteController {
      * @param toLocation   the name of the destination location
      * @param sortBy       the parameter to sort by (e.g., "distance", "rating",
      *                     "name")
+     * @param page         the page number, starting from 0
+     * @param size         the page size
      * @return sorted list of matching routes
      */
     @GetMapping("/searchBetweenLocations")
     public ResponseEntity<List<RouteDTO>> findRoutesBetweenLocations(
             @RequestParam String fromLocation,
             @RequestParam String toLocation,
-            @RequestParam String sortBy) {
-        List<Route> routes = routeService.findRoutesBetweenLocations(fromLocation, toLocation, sortBy);
+            @RequestParam String sortBy,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(required = false) Integer size) {
+        List<Route> routes = routeService.findRoutesBetweenLocations(fromLocation, toLocation, sortBy, page, size);
         List<RouteDTO> routeDTOs = routes.stream()
                 .map(RouteDTO::convertToDTO)
                 .collect(Collectors.toList());
@@ -81,17 +119,50 @@ public class RouteController {
     }
 
     /**
-     * Get all Routes
+     * Get a page of Routes
      *
-     * @return list of Routes
+     * @param after  the cursor of the previous page (the "next" field of its
+     *               response), omitted for the first page
+     * @param size   the page size
+     * @param sortBy the parameter to sort by (e.g., "id", "name", "rating",
+     *               "creationDate")
+     * @param request      the request, checked against the dataset version ETag
+     * @return page of Routes with the cursor of the next page, or 304 if the
+     *         dataset did not change since the ETag in If-None-Match
      */
     @GetMapping
-    public ResponseEntity<List<RouteDTO>> getAllRoutes() {
-        List<RouteDTO> routes = routeService.getAllRoutes()
-                .stream()
-                .map(RouteDTO::convertToDTO)
-                .collect(Collectors.toList());
-        return new ResponseEntity<>(routes, HttpStatus.OK);
+    public ResponseEntity<PageDTO<RouteDTO>> getAllRoutes(
+            @RequestParam(required = false) String after,
+            @RequestParam(required = false) Integer size,
+            @RequestParam(defaultValue = "id") String sortBy,
+            WebRequest request) {
+        String etag = datasetVersionService.etag();
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+        PageDTO<RouteDTO> routes = routeService.getAllRoutes(after, size, sortBy)
+                .map(RouteDTO::convertToDTO);
+        return ResponseEntity.ok().eTag(etag).cacheControl(CacheControl.noCache()).body(routes);
+    }
+
+    /**
+     * Stream all Routes as newline-delimited JSON, one Route per line, written
+     * as soon as it is read from the database
+     *
+     * @return the streamed Routes
+     */
+    @GetMapping(produces = NDJSON)
+    public ResponseEntity<StreamingResponseBody> streamAllRoutes() {
+        ObjectWriter writer = objectMapper.writerFor(RouteDTO.class);
+        StreamingResponseBody body = out -> routeService.streamAllRoutes(route -> {
+            try {
+                out.write(writer.writeValueAsBytes(RouteDTO.convertToDTO(route)));
+                out.write('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        return ResponseEntity.ok().contentType(MediaType.parseMediaType(NDJSON)).body(body);
     }
 
     /**
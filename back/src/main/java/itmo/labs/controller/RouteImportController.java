@@ -1,15 +1,24 @@
 package itmo.labs.controller;
 
 import itmo.labs.dto.ImportHistoryUpdateDTO;
-import itmo.labs.dto.RouteUpdateDTO;
+import itmo.labs.dto.ImportUploadDTO;
+import itmo.labs.dto.PageDTO;
 import itmo.labs.model.ImportHistory;
-import itmo.labs.model.OperationType;
+import itmo.labs.model.ImportHistory.ImportMode;
 import itmo.labs.model.ImportHistory.ImportStatus;
+import itmo.labs.model.ImportUpload;
 import itmo.labs.repository.ImportHistoryRepository;
+import itmo.labs.service.ImportUploadService;
 import itmo.labs.service.RouteImportService;
+import jakarta.servlet.http.HttpServletRequest;
+
+import java.io.InputStream;
+import java.util.Optional;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
-import java.util.List;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -19,26 +28,40 @@ import org.springframework.web.multipart.MultipartFile;
 @RequestMapping("/api/routes")
 public class RouteImportController {
 
+    private static final String UPLOAD_OFFSET = "Upload-Offset";
+    private static final Pattern CONTENT_RANGE = Pattern.compile("bytes (\\d+)-(\\d+)/(\\d+)");
+
     private final RouteImportService routeImportService;
+    private final ImportUploadService importUploadService;
     private final ImportHistoryRepository importHistoryRepository;
     private final RouteWebSocketController routeWebSocketController;
 
     @Autowired
-    public RouteImportController(RouteImportService routeImportService, ImportHistoryRepository importHistoryRepository,
-            RouteWebSocketController routeWebSocketController) {
+    public RouteImportController(RouteImportService routeImportService, ImportUploadService importUploadService,
+            ImportHistoryRepository importHistoryRepository, RouteWebSocketController routeWebSocketController) {
         this.routeImportService = routeImportService;
+        this.importUploadService = importUploadService;
         this.importHistoryRepository = importHistoryRepository;
         this.routeWebSocketController = routeWebSocketController;
     }
 
     /**
-     * Endpoint for inporting Routes from YAML file
+     * Endpoint for inporting Routes from a YAML, JSON Lines or CSV file,
+     * told apart by the extension or the content type. The file is stored and
+     * queued, progress and the result are sent to /topic/import-history
      *
-     * @param file YAML-file with routes
-     * @return status of operation
+     * @param file file with routes
+     * @param bulk import with COPY through a staging table; large files are
+     *             imported this way anyway
+     * @param mode  how to import the file, overrides bulk
+     * @param force import the file even if it was imported recently
+     * @return 202 with the queued import, its ID is the job ID, or 200 with
+     *         the earlier import of the same file
      */
     @PostMapping("/import")
-    public ResponseEntity<String> importRoutes(@RequestParam("file") MultipartFile file) {
+    public ResponseEntity<?> importRoutes(@RequestParam("file") MultipartFile file,
+            @RequestParam(defaultValue = "false") boolean bulk, @RequestParam(required = false) ImportMode mode,
+            @RequestParam(defaultValue = "false") boolean force) {
         ImportHistory history = new ImportHistory();
         if (file.isEmpty()) {
             history.setStatus(ImportStatus.FAILURE);
@@ -47,12 +70,55 @@ public class RouteImportController {
             return new ResponseEntity<>("File not selected for import.", HttpStatus.BAD_REQUEST);
         }
         try {
-            routeImportService.importRoutes(file, history);
-            history.setStatus(ImportStatus.SUCCESS);
+            return queued(history, routeImportService.submitImport(file, history, mode(bulk, mode), force));
+        } catch (Exception e) {
+            history.setStatus(ImportStatus.FAILURE);
+            history.setErrorMessage(e.getMessage());
             importHistoryRepository.save(history);
             routeWebSocketController.notifyImportHistoryChange(new ImportHistoryUpdateDTO(history));
-            routeWebSocketController.notifyRouteChange(new RouteUpdateDTO(OperationType.CREATE, history.getRecordsImported(), null));
-            return new ResponseEntity<>("Routes successfully imported.", HttpStatus.OK);
+            return new ResponseEntity<>("Error importing routes: " + e.getMessage(), HttpStatus.BAD_REQUEST);
+        }
+    }
+
+    /**
+     * Endpoint for inporting Routes from a file sent as the raw request
+     * body, possibly with a gzip or zstd Content-Encoding. Unlike the
+     * multipart endpoint the body is not spooled: it is streamed to MinIO
+     * while the parser checks it, and a malformed file is rejected before it
+     * is queued
+     *
+     * @param filename original name of the file
+     * @param bulk     import with COPY through a staging table
+     * @param mode     how to import the file, overrides bulk
+     * @param sha256   hex SHA-256 of the file, if known; when the user has
+     *                 just imported it the body is not read
+     * @param force    import the file even if it was imported recently
+     * @param request  the request with the file as its body
+     * @return 202 with the queued import, its ID is the job ID, or 200 with
+     *         the earlier import of the same file
+     */
+    @PostMapping("/import/stream")
+    public ResponseEntity<?> importRoutesStream(@RequestParam String filename,
+            @RequestParam(defaultValue = "false") boolean bulk, @RequestParam(required = false) ImportMode mode,
+            @RequestParam(required = false) String sha256, @RequestParam(defaultValue = "false") boolean force,
+            HttpServletRequest request) {
+        if (sha256 != null && !force) {
+            Optional<ImportHistory> duplicate = routeImportService.findDuplicate(sha256);
+            if (duplicate.isPresent()) {
+                return new ResponseEntity<>(new ImportHistoryUpdateDTO(duplicate.get()), HttpStatus.OK);
+            }
+        }
+        ImportHistory history = new ImportHistory();
+        if (request.getContentLengthLong() == 0) {
+            history.setStatus(ImportStatus.FAILURE);
+            history.setErrorMessage("File not selected for import (or file is empty).");
+            importHistoryRepository.save(history);
+            return new ResponseEntity<>("File not selected for import.", HttpStatus.BAD_REQUEST);
+        }
+        try (InputStream body = request.getInputStream()) {
+            String contentType = request.getContentType() != null ? request.getContentType() : "application/octet-stream";
+            return queued(history, routeImportService.submitImportStream(body, filename, contentType,
+                    request.getHeader(HttpHeaders.CONTENT_ENCODING), history, mode(bulk, mode), force));
         } catch (Exception e) {
             history.setStatus(ImportStatus.FAILURE);
             history.setErrorMessage(e.getMessage());
@@ -62,18 +128,187 @@ public class RouteImportController {
         }
     }
 
+    /**
+     * Endpoint for starting a resumable upload of an import file. The file is
+     * then sent with PUT /api/routes/import/uploads/{id} in chunks
+     *
+     * @param filename original name of the file
+     * @param size     size of the file in bytes
+     * @param bulk     import with COPY through a staging table
+     * @param mode     how to import the file, overrides bulk
+     * @param sha256   hex SHA-256 of the file, if known
+     * @param force    import the file even if it was imported recently
+     * @return 201 with the upload, or 200 with the earlier import of the same
+     *         file, which then does not have to be sent
+     */
+    @PostMapping("/import/uploads")
+    public ResponseEntity<?> createUpload(@RequestParam String filename, @RequestParam long size,
+            @RequestParam(defaultValue = "false") boolean bulk, @RequestParam(required = false) ImportMode mode,
+            @RequestParam(required = false) String sha256, @RequestParam(defaultValue = "false") boolean force) {
+        if (sha256 != null && !force) {
+            Optional<ImportHistory> duplicate = routeImportService.findDuplicate(sha256);
+            if (duplicate.isPresent()) {
+                return new ResponseEntity<>(new ImportHistoryUpdateDTO(duplicate.get()), HttpStatus.OK);
+            }
+        }
+        try {
+            ImportUpload upload = importUploadService.create(filename, size, mode(bulk, mode), force);
+            return new ResponseEntity<>(new ImportUploadDTO(upload, ImportUploadService.MIN_CHUNK_SIZE),
+                    HttpStatus.CREATED);
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(e.getMessage(), HttpStatus.BAD_REQUEST);
+        }
+    }
+
+    /**
+     * Endpoint for the offset a resumable upload continues at, also sent in
+     * the Upload-Offset header
+     *
+     * @param id the upload
+     */
+    @GetMapping("/import/uploads/{id}")
+    public ResponseEntity<?> getUpload(@PathVariable String id) {
+        try {
+            ImportUpload upload = importUploadService.get(id);
+            return ResponseEntity.ok()
+                    .header(UPLOAD_OFFSET, Long.toString(upload.getUploadedBytes()))
+                    .body(uploadResponse(upload));
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(e.getMessage(), HttpStatus.NOT_FOUND);
+        }
+    }
+
+    /**
+     * Endpoint for one chunk of a resumable upload. The chunk has to start at
+     * the offset of the upload, otherwise 409 is returned with that offset.
+     * The last chunk queues the import
+     *
+     * @param id      the upload
+     * @param range   "bytes start-end/total" of the chunk, end inclusive
+     * @param request the request with the chunk as its body
+     * @return 200 with the new offset, or 202 with the queued import after
+     *         the last chunk
+     */
+    @PutMapping("/import/uploads/{id}")
+    public ResponseEntity<?> putUploadChunk(@PathVariable String id,
+            @RequestHeader(HttpHeaders.CONTENT_RANGE) String range, HttpServletRequest request) {
+        Matcher matcher = CONTENT_RANGE.matcher(range);
+        if (!matcher.matches()) {
+            return new ResponseEntity<>("Invalid Content-Range: " + range, HttpStatus.BAD_REQUEST);
+        }
+        long start = Long.parseLong(matcher.group(1));
+        long end = Long.parseLong(matcher.group(2));
+        long total = Long.parseLong(matcher.group(3));
+        try (InputStream body = request.getInputStream()) {
+            ImportUpload upload = importUploadService.putChunk(id, start, end - start + 1, total, body);
+            ImportUploadDTO response = uploadResponse(upload);
+            if (response.getImportHistory() != null) {
+                routeWebSocketController.notifyImportHistoryChange(response.getImportHistory());
+                return new ResponseEntity<>(response, HttpStatus.ACCEPTED);
+            }
+            return ResponseEntity.ok()
+                    .header(UPLOAD_OFFSET, Long.toString(upload.getUploadedBytes()))
+                    .body(response);
+        } catch (IllegalStateException e) {
+            ImportUpload upload = importUploadService.get(id);
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .header(UPLOAD_OFFSET, Long.toString(upload.getUploadedBytes()))
+                    .body(uploadResponse(upload));
+        } catch (Exception e) {
+            return new ResponseEntity<>("Error uploading file: " + e.getMessage(), HttpStatus.BAD_REQUEST);
+        }
+    }
+
+    private static ImportMode mode(boolean bulk, ImportMode mode) {
+        return mode != null ? mode : bulk ? ImportMode.BULK : null;
+    }
+
+    private ResponseEntity<?> queued(ImportHistory history, ImportHistory result) {
+        ImportHistoryUpdateDTO response = new ImportHistoryUpdateDTO(result);
+        if (result != history) {
+            // the same file was imported before, nothing was queued
+            return new ResponseEntity<>(response, HttpStatus.OK);
+        }
+        routeWebSocketController.notifyImportHistoryChange(response);
+        return new ResponseEntity<>(response, HttpStatus.ACCEPTED);
+    }
+
+    private ImportUploadDTO uploadResponse(ImportUpload upload) {
+        ImportUploadDTO response = new ImportUploadDTO(upload, ImportUploadService.MIN_CHUNK_SIZE);
+        if (upload.getImportId() != null) {
+            importHistoryRepository.findById(upload.getImportId())
+                    .ifPresent(history -> response.setImportHistory(new ImportHistoryUpdateDTO(history)));
+        }
+        return response;
+    }
+
+    /**
+     * Endpoint for continuing a CHUNKED import that stopped after committing
+     * chunks, from its checkpoint
+     *
+     * @param id the import
+     * @return 202 with the queued import
+     */
+    @PostMapping("/import/{id}/resume")
+    public ResponseEntity<?> resumeImport(@PathVariable Long id) {
+        try {
+            ImportHistoryUpdateDTO response = new ImportHistoryUpdateDTO(routeImportService.resumeImport(id));
+            routeWebSocketController.notifyImportHistoryChange(response);
+            return new ResponseEntity<>(response, HttpStatus.ACCEPTED);
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(e.getMessage(), HttpStatus.NOT_FOUND);
+        } catch (IllegalStateException e) {
+            return new ResponseEntity<>(e.getMessage(), HttpStatus.CONFLICT);
+        }
+    }
+
+    /**
+     * Endpoint for a download URL of the file of an import, signed on demand
+     *
+     * @param id the import
+     * @return the URL
+     */
+    @GetMapping("/import/{id}/file")
+    public ResponseEntity<?> getImportFileUrl(@PathVariable Long id) {
+        return downloadUrl(id, false);
+    }
+
+    /**
+     * Endpoint for a download URL of the failed rows of a CHUNKED import
+     *
+     * @param id the import
+     * @return the URL
+     */
+    @GetMapping("/import/{id}/errors")
+    public ResponseEntity<?> getImportErrorReportUrl(@PathVariable Long id) {
+        return downloadUrl(id, true);
+    }
+
+    private ResponseEntity<?> downloadUrl(Long id, boolean errorReport) {
+        try {
+            return new ResponseEntity<>(routeImportService.getDownloadUrl(id, errorReport), HttpStatus.OK);
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(e.getMessage(), HttpStatus.NOT_FOUND);
+        } catch (Exception e) {
+            return new ResponseEntity<>(e.getMessage(), HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
     /**
      * Endpoint для получения истории импорта.
      * 
      * Если пользователь имеет роль ADMIN, возвращает все записи.
      * Иначе возвращает только записи, созданные текущим пользователем.
      *
-     * @param authentication объект Authentication, предоставляемый Spring Security
-     * @return список историй импорта
+     * @param after курсор предыдущей страницы (поле "next" её ответа)
+     * @param size  размер страницы
+     * @return страница историй импорта
      */
     @GetMapping("/import")
-    public ResponseEntity<List<ImportHistoryUpdateDTO>> getImportHistories() {
-        List<ImportHistoryUpdateDTO> dtoList = routeImportService.getImportHistory();
-        return new ResponseEntity<>(dtoList, HttpStatus.OK);
+    public ResponseEntity<PageDTO<ImportHistoryUpdateDTO>> getImportHistories(
+            @RequestParam(required = false) String after,
+            @RequestParam(required = false) Integer size) {
+        PageDTO<ImportHistoryUpdateDTO> page = routeImportService.getImportHistory(after, size);
+        return new ResponseEntity<>(page, HttpStatus.OK);
     }
 }
\ No newline at end of file
@@ -1,6 +1,7 @@
 package itmo.labs.controller;
 
 import itmo.labs.dto.ImportHistoryUpdateDTO;
+import itmo.labs.dto.RouteBulkDeleteDTO;
 import itmo.labs.dto.RouteUpdateDTO;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.stereotype.Controller;
@@ -18,6 +19,10 @@ public class RouteWebSocketController {
         messagingTemplate.convertAndSend("/topic/routes", updateDTO);
     }
 
+    public void notifyRouteBulkDelete(RouteBulkDeleteDTO bulkDeleteDTO) {
+        messagingTemplate.convertAndSend("/topic/routes", bulkDeleteDTO);
+    }
+
     public void notifyImportHistoryChange(ImportHistoryUpdateDTO importHistoryDTO) {
         messagingTemplate.convertAndSend("/topic/import-history", importHistoryDTO);
     }
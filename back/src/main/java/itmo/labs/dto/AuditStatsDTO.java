@@ -0,0 +1,22 @@
+package itmo.labs.dto;
+
+import java.time.LocalDateTime;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+@Setter
+@AllArgsConstructor
+public class AuditStatsDTO {
+    private boolean synchronous;
+    private int queueDepth;
+    private int queueCapacity;
+    private long written;
+    private long dropped; // queue was full
+    private long failed; // still failed after the retries, lost
+    private long retried; // batch inserts retried after a failure
+    private String lastError; // why rows were last dropped or lost
+    private LocalDateTime lastErrorAt;
+}
@@ -1,6 +1,7 @@
 package itmo.labs.dto;
 
 import itmo.labs.model.ImportHistory;
+import itmo.labs.model.ImportHistory.ImportMode;
 import itmo.labs.model.ImportHistory.ImportStatus;
 import java.time.LocalDateTime;
 import lombok.Getter;
@@ -16,15 +17,31 @@ public class ImportHistoryUpdateDTO {
     private ImportStatus status;
     private String performedBy;
     private int recordsImported;
+    private int recordsFailed;
+    private int recordsSkipped;
+    // the file and the error report are fetched from /api/routes/import/{id}/file and /errors
+    private boolean fileAvailable;
+    private boolean errorReportAvailable;
     private String errorMessage;
-    private String fileUrl;
+    private ImportMode mode;
+    private String contentHash;
+    // progress of a running import, only set in progress notifications
+    private Integer recordsProcessed;
+    private Double recordsPerSecond;
+    private Long etaSeconds;
+
     public ImportHistoryUpdateDTO(ImportHistory importHistory) {
         this.id = importHistory.getId();
         this.timestamp = importHistory.getTimestamp();
         this.status = importHistory.getStatus();
         this.performedBy = importHistory.getPerformedBy();
         this.recordsImported = importHistory.getRecordsImported();
+        this.recordsFailed = importHistory.getRecordsFailed();
+        this.recordsSkipped = importHistory.getRecordsSkipped();
+        this.fileAvailable = importHistory.getObjectKey() != null;
+        this.errorReportAvailable = importHistory.getErrorReportKey() != null;
         this.errorMessage = importHistory.getErrorMessage();
-        this.fileUrl = importHistory.getFileUrl();
+        this.mode = importHistory.getMode();
+        this.contentHash = importHistory.getContentHash();
     }
 }
\ No newline at end of file
@@ -0,0 +1,27 @@
+package itmo.labs.dto;
+
+import itmo.labs.model.ImportUpload;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@NoArgsConstructor
+public class ImportUploadDTO {
+    private String id;
+    private long size;
+    // the next chunk has to start at this offset
+    private long offset;
+    // chunks other than the last one have to be at least this large
+    private long minChunkSize;
+    // the queued import once the last chunk is stored
+    private ImportHistoryUpdateDTO importHistory;
+
+    public ImportUploadDTO(ImportUpload upload, long minChunkSize) {
+        this.id = upload.getId();
+        this.size = upload.getSize();
+        this.offset = upload.getUploadedBytes();
+        this.minChunkSize = minChunkSize;
+    }
+}
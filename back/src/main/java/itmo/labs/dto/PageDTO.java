@@ -0,0 +1,27 @@
+package itmo.labs.dto;
+
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+@Setter
+@AllArgsConstructor
+public class PageDTO<T> {
+    private List<T> items;
+    private String next; // cursor of the following page, null on the last one
+
+    /**
+     * Convert the items of this page keeping the cursor
+     *
+     * @param mapper the item converter
+     * @return the converted page
+     */
+    public <R> PageDTO<R> map(Function<T, R> mapper) {
+        return new PageDTO<>(items.stream().map(mapper).collect(Collectors.toList()), next);
+    }
+}
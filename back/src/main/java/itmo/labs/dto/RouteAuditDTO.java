@@ -0,0 +1,32 @@
+package itmo.labs.dto;
+
+import java.time.LocalDateTime;
+
+import itmo.labs.model.OperationType;
+import itmo.labs.model.RouteAudit;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@NoArgsConstructor
+public class RouteAuditDTO {
+    private Long id;
+    private Integer routeId;
+    private OperationType operationType;
+    private LocalDateTime timestamp;
+    private Integer performedById;
+    private String performedByUsername;
+    private String description;
+
+    public RouteAuditDTO(RouteAudit audit) {
+        this.id = audit.getId();
+        this.routeId = audit.getRouteId();
+        this.operationType = audit.getOperationType();
+        this.timestamp = audit.getTimestamp();
+        this.performedById = audit.getPerformedBy().getId();
+        this.performedByUsername = audit.getPerformedBy().getUsername();
+        this.description = audit.getDescription();
+    }
+}
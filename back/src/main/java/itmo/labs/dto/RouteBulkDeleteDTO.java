@@ -0,0 +1,24 @@
+package itmo.labs.dto;
+
+import java.util.List;
+
+import itmo.labs.model.OperationType;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+@Setter
+@AllArgsConstructor
+public class RouteBulkDeleteDTO {
+    private OperationType action;
+    private List<Integer> routeIds;
+
+    @Override
+    public String toString() {
+        return "RouteBulkDeleteDTO{" +
+                "action='" + action + '\'' +
+                ", routeIds=" + routeIds.size() +
+                '}';
+    }
+}
@@ -19,6 +19,7 @@ public class RouteDTO {
     private String name;
 
     @NotNull(message = "Coordinates cannot be null")
+    @Valid
     private CoordinatesDTO coordinates;
 
     private String creationDate; // ISO 8601 format
@@ -39,6 +40,8 @@ public class RouteDTO {
 
     private boolean allowAdminEditing;
 
+    private Long version; // optimistic lock version, send it back on update to reject stale edits
+
     /**
      * Convert RouteDTO to Route entity
      *
@@ -102,6 +105,7 @@ public class RouteDTO {
         dto.setDistance(route.getDistance());
         dto.setRating(route.getRating());
         dto.setAllowAdminEditing(route.isAllowAdminEditing());
+        dto.setVersion(route.getVersion());
         return dto;
     }
 
@@ -0,0 +1,26 @@
+package itmo.labs.dto;
+
+import java.time.LocalDateTime;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+public class RouteFilterDTO {
+    private Integer rating;
+    private Integer ownerId;
+    private String fromLocation; // location name, case-insensitive
+    private String toLocation; // location name, case-insensitive
+    private LocalDateTime createdAfter; // inclusive
+    private LocalDateTime createdBefore; // exclusive
+
+    public boolean isEmpty() {
+        return rating == null && ownerId == null && fromLocation == null && toLocation == null
+                && createdAfter == null && createdBefore == null;
+    }
+}
@@ -0,0 +1,18 @@
+package itmo.labs.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+@Setter
+@AllArgsConstructor
+public class StorageCleanupStatsDTO {
+    private long pending; // tasks in the outbox
+    private long retrying; // pending tasks that have failed at least once
+    private long oldestPendingSeconds;
+    private long removed; // on this node since it started
+    private long failed; // failed attempts on this node
+    private long orphansFound; // found by the sweep on this node
+    private boolean lastSweepReportOnly; // the last sweep only reported its orphans
+}
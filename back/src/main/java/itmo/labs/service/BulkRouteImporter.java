@@ -0,0 +1,299 @@
+package itmo.labs.service;
+
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.IntConsumer;
+
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import itmo.labs.dto.CoordinatesDTO;
+import itmo.labs.dto.LocationDTO;
+import itmo.labs.dto.RouteDTO;
+import itmo.labs.exception.GlobalExceptionHandler;
+import itmo.labs.model.User;
+import itmo.labs.utils.RouteImportFormat;
+
+/**
+ * Bulk ingest of an import file for PostgreSQL. Parsed entries are streamed
+ * with COPY into the unlogged route_import_staging table, checked with a few
+ * set-based queries and then inserted into coordinates, location and route
+ * with one INSERT ... SELECT per table. All broken entries are reported
+ * together, as in {@link ImportValidator}. IDs are taken from the entities'
+ * sequences in the same blocks Hibernate's pooled optimizer uses, so both
+ * paths can insert into the same tables. Unlike the entity path, equal
+ * locations of one file are stored once and no per-route WebSocket
+ * notifications are sent.
+ */
+@Service
+public class BulkRouteImporter {
+
+    // allocationSize of the entities' @SequenceGenerator
+    private static final int ALLOCATION_SIZE = 50;
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
+
+    private static final String COPY_SQL = "COPY route_import_staging (import_id, line_no, kind, name, "
+            + "coord_x, coord_y, from_name, from_x, from_y, to_name, to_x, to_y, distance, rating, "
+            + "allow_admin_editing) FROM STDIN WITH (FORMAT csv)";
+
+    // the first failed check of every broken entry, in the order the entity path validates
+    private static final String VALIDATE_SQL = "SELECT line_no, error, count(*) OVER () AS total "
+            + "FROM (SELECT line_no, CASE "
+            + "WHEN kind = 'R' AND (name IS NULL OR btrim(name) = '') THEN 'Route name cannot be null or empty' "
+            + "WHEN kind = 'R' AND (coord_x < -180 OR coord_x > 180) THEN 'Invalid X (latitude) for route: ' || name "
+            + "WHEN kind = 'R' AND (coord_y < -90 OR coord_y > 90) THEN 'Invalid Y (longitude) for route: ' || name "
+            + "WHEN kind = 'C' AND coord_y > 552 THEN 'Y coordinate must be less than or equal to 552' "
+            + "WHEN kind = 'R' AND distance < 2 THEN 'Distance must be greater than 1' "
+            + "WHEN kind = 'R' AND rating < 1 THEN 'Rating must be greater than 0' "
+            + "WHEN kind IN ('R', 'L') AND (from_name IS NULL OR btrim(from_name) = '') "
+            + "OR kind = 'R' AND to_x IS NOT NULL AND (to_name IS NULL OR btrim(to_name) = '') "
+            + "THEN 'Location name cannot be null or empty' "
+            + "END AS error FROM route_import_staging WHERE import_id = ?) checked "
+            + "WHERE error IS NOT NULL ORDER BY line_no LIMIT ?";
+    private static final String DUPLICATE_IN_FILE_SQL = "SELECT line_no, name, first, count(*) OVER () AS total "
+            + "FROM (SELECT line_no, name, min(line_no) OVER (PARTITION BY lower(name)) AS first "
+            + "FROM route_import_staging WHERE import_id = ? AND kind = 'R' AND btrim(name) <> '') named "
+            + "WHERE line_no > first ORDER BY line_no LIMIT ?";
+    private static final String DUPLICATE_IN_DB_SQL = "SELECT s.line_no, s.name, count(*) OVER () AS total "
+            + "FROM route_import_staging s JOIN route r ON lower(r.name) = lower(s.name) "
+            + "WHERE s.import_id = ? AND s.kind = 'R' ORDER BY s.line_no LIMIT ?";
+
+    private static final String INSERT_COORDINATES_SQL = "INSERT INTO coordinates (id, x, y) "
+            + "SELECT coordinates_id, coord_x, coord_y FROM route_import_staging "
+            + "WHERE import_id = ? AND kind IN ('R', 'C')";
+    // 'K' rows hold the distinct locations of the file, their ID goes to from_id
+    private static final String COLLECT_LOCATIONS_SQL = "INSERT INTO route_import_staging "
+            + "(import_id, line_no, kind, from_name, from_x, from_y) "
+            + "SELECT ?, -row_number() OVER (), 'K', name, x, y FROM ("
+            + "SELECT from_name, from_x, from_y FROM route_import_staging WHERE import_id = ? AND kind IN ('R', 'L') "
+            + "UNION SELECT to_name, to_x, to_y FROM route_import_staging "
+            + "WHERE import_id = ? AND kind = 'R' AND to_x IS NOT NULL) k (name, x, y)";
+    private static final String INSERT_LOCATIONS_SQL = "INSERT INTO location (location_id, location_name, x, y) "
+            + "SELECT from_id, from_name, from_x, from_y FROM route_import_staging WHERE import_id = ? AND kind = 'K'";
+    private static final String LINK_FROM_SQL = "UPDATE route_import_staging r SET from_id = k.from_id "
+            + "FROM route_import_staging k WHERE r.import_id = ? AND r.kind = 'R' AND k.import_id = r.import_id "
+            + "AND k.kind = 'K' AND k.from_name = r.from_name AND k.from_x = r.from_x AND k.from_y = r.from_y";
+    private static final String LINK_TO_SQL = "UPDATE route_import_staging r SET to_id = k.from_id "
+            + "FROM route_import_staging k WHERE r.import_id = ? AND r.kind = 'R' AND k.import_id = r.import_id "
+            + "AND k.kind = 'K' AND k.from_name = r.to_name AND k.from_x = r.to_x AND k.from_y = r.to_y";
+    private static final String INSERT_ROUTES_SQL = "INSERT INTO route (id, name, coordinates_id, creation_date, "
+            + "from_location_id, to_location_id, distance, rating, created_by_id, allow_admin_editing, version) "
+            + "SELECT route_id, name, coordinates_id, ?, from_id, to_id, distance, rating, ?, allow_admin_editing, 0 "
+            + "FROM route_import_staging WHERE import_id = ? AND kind = 'R'";
+    private static final String INSERT_AUDIT_SQL = "INSERT INTO route_audit "
+            + "(route_id, operation_type, timestamp, performed_by_id, description) "
+            + "SELECT route_id, 'CREATE', ?, ?, 'Route created with ID: ' || route_id "
+            + "FROM route_import_staging WHERE import_id = ? AND kind = 'R'";
+    private static final String CLEAR_STAGING_SQL = "DELETE FROM route_import_staging WHERE import_id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ImportValidator importValidator;
+
+    public BulkRouteImporter(JdbcTemplate jdbcTemplate, ImportValidator importValidator) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.importValidator = importValidator;
+    }
+
+    /**
+     * Import an import file in the caller's transaction
+     *
+     * @param importId    the import, keys its rows in the staging table
+     * @param performedBy the owner of the created Routes
+     * @param format      format of the import file
+     * @param input       the import file
+     * @param progress    called with the number of entries read so far
+     * @return the number of imported entries
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public int importFile(long importId, User performedBy, RouteImportFormat format, InputStream input,
+            IntConsumer progress) {
+        try {
+            int entries = jdbcTemplate.execute((ConnectionCallback<Integer>) connection -> copyToStaging(
+                    connection, importId, format, input, progress));
+            validate(importId);
+
+            assignIds(importId, "'R', 'C'", "coordinates_id", "coordinates_seq");
+            jdbcTemplate.update(INSERT_COORDINATES_SQL, importId);
+
+            jdbcTemplate.update(COLLECT_LOCATIONS_SQL, importId, importId, importId);
+            assignIds(importId, "'K'", "from_id", "location_seq");
+            jdbcTemplate.update(INSERT_LOCATIONS_SQL, importId);
+            jdbcTemplate.update(LINK_FROM_SQL, importId);
+            jdbcTemplate.update(LINK_TO_SQL, importId);
+
+            assignIds(importId, "'R'", "route_id", "route_seq");
+            LocalDateTime now = LocalDateTime.now();
+            jdbcTemplate.update(INSERT_ROUTES_SQL, now, performedBy.getId(), importId);
+            jdbcTemplate.update(INSERT_AUDIT_SQL, now, performedBy.getId(), importId);
+
+            jdbcTemplate.update(CLEAR_STAGING_SQL, importId);
+            return entries;
+        } catch (DataIntegrityViolationException e) {
+            // a concurrent insert took a name or ID after validate(); the driver message is not for clients
+            throw new IllegalArgumentException("Error importing routes: " + GlobalExceptionHandler.conflictMessage(e));
+        }
+    }
+
+    private int copyToStaging(Connection connection, long importId, RouteImportFormat format, InputStream input,
+            IntConsumer progress) throws SQLException {
+        if (!connection.isWrapperFor(PGConnection.class)) {
+            throw new IllegalStateException("Bulk import requires PostgreSQL");
+        }
+        CopyIn copyIn = connection.unwrap(PGConnection.class).getCopyAPI().copyIn(COPY_SQL);
+        try {
+            StagingWriter writer = new StagingWriter(copyIn, importId, progress);
+            format.parse(input, writer);
+            writer.flush();
+            copyIn.endCopy();
+            return writer.lineNo;
+        } finally {
+            if (copyIn.isActive()) {
+                copyIn.cancelCopy();
+            }
+        }
+    }
+
+    private void validate(long importId) {
+        ImportValidator.Report report = importValidator.newReport();
+        int limit = report.getMaxErrors();
+        collect(report, jdbcTemplate.queryForList(VALIDATE_SQL, importId, limit),
+                row -> (String) row.get("error"));
+        collect(report, jdbcTemplate.queryForList(DUPLICATE_IN_FILE_SQL, importId, limit),
+                row -> "Duplicate route name found in import file: " + row.get("name")
+                        + " (first at entry " + row.get("first") + ")");
+        collect(report, jdbcTemplate.queryForList(DUPLICATE_IN_DB_SQL, importId, limit),
+                row -> "Route with this name already exists: " + row.get("name"));
+        if (report.hasErrors()) {
+            throw new IllegalArgumentException(report.toMessage());
+        }
+    }
+
+    private static void collect(ImportValidator.Report report, List<Map<String, Object>> rows,
+            Function<Map<String, Object>, String> message) {
+        for (Map<String, Object> row : rows) {
+            report.add(((Number) row.get("line_no")).intValue(), message.apply(row));
+        }
+        if (!rows.isEmpty()) {
+            report.addOmitted(((Number) rows.get(0).get("total")).intValue() - rows.size());
+        }
+    }
+
+    /**
+     * Number the staging rows of the given kinds with fresh IDs of the
+     * sequence. Each nextval is the top of a block of ALLOCATION_SIZE IDs, as
+     * for Hibernate's pooled optimizer
+     */
+    private void assignIds(long importId, String kinds, String idColumn, String sequence) {
+        Integer rows = jdbcTemplate.queryForObject("SELECT count(*) FROM route_import_staging "
+                + "WHERE import_id = ? AND kind IN (" + kinds + ")", Integer.class, importId);
+        if (rows == null || rows == 0) {
+            return;
+        }
+        int blocks = (rows + ALLOCATION_SIZE - 1) / ALLOCATION_SIZE;
+        List<Long> tops = new ArrayList<>(blocks);
+        while (tops.size() < blocks) {
+            for (Long top : jdbcTemplate.queryForList("SELECT nextval('" + sequence + "') "
+                    + "FROM generate_series(1, ?)", Long.class, blocks - tops.size())) {
+                // the first value of a fresh sequence tops a block below 1
+                if (top >= ALLOCATION_SIZE) {
+                    tops.add(top);
+                }
+            }
+        }
+        jdbcTemplate.update("WITH numbered AS (SELECT line_no, row_number() OVER (ORDER BY line_no) - 1 AS n "
+                + "FROM route_import_staging WHERE import_id = ? AND kind IN (" + kinds + ")) "
+                + "UPDATE route_import_staging s SET " + idColumn + " = "
+                + "(CAST(? AS bigint[]))[n / " + ALLOCATION_SIZE + " + 1] - " + (ALLOCATION_SIZE - 1)
+                + " + n % " + ALLOCATION_SIZE + " FROM numbered "
+                + "WHERE s.import_id = ? AND s.line_no = numbered.line_no",
+                importId, tops.toArray(new Long[0]), importId);
+    }
+
+    /**
+     * Writes parsed entries as CSV rows of the COPY into the staging table
+     */
+    private static final class StagingWriter implements RouteImportFormat.Handler {
+        private final CopyIn copyIn;
+        private final long importId;
+        private final IntConsumer progress;
+        private final StringBuilder buffer = new StringBuilder(COPY_BUFFER_SIZE);
+        private int lineNo;
+
+        StagingWriter(CopyIn copyIn, long importId, IntConsumer progress) {
+            this.copyIn = copyIn;
+            this.importId = importId;
+            this.progress = progress;
+        }
+
+        @Override
+        public void coordinates(CoordinatesDTO coordinates) {
+            row('C', null, coordinates.getX(), coordinates.getY(), null, null, null, null, null, null,
+                    null, null, null);
+        }
+
+        @Override
+        public void location(LocationDTO location) {
+            row('L', null, null, null, location.getName(), location.getX(), location.getY(), null, null, null,
+                    null, null, null);
+        }
+
+        @Override
+        public void route(RouteDTO route) {
+            LocationDTO from = route.getFrom();
+            LocationDTO to = route.getTo();
+            row('R', route.getName(), route.getCoordinates().getX(), route.getCoordinates().getY(),
+                    from.getName(), from.getX(), from.getY(),
+                    to == null ? null : to.getName(), to == null ? null : to.getX(), to == null ? null : to.getY(),
+                    route.getDistance(), route.getRating(), route.isAllowAdminEditing());
+        }
+
+        private void row(char kind, String name, Object coordX, Object coordY, String fromName, Object fromX,
+                Object fromY, String toName, Object toX, Object toY, Object distance, Object rating,
+                Object allowAdminEditing) {
+            lineNo++;
+            buffer.append(importId).append(',').append(lineNo).append(',').append(kind);
+            for (Object value : new Object[] { name, coordX, coordY, fromName, fromX, fromY, toName, toX, toY,
+                    distance, rating, allowAdminEditing }) {
+                buffer.append(',');
+                if (value instanceof String text) {
+                    // quoted, so an empty name stays an empty string instead of NULL
+                    buffer.append('"').append(text.replace("\"", "\"\"")).append('"');
+                } else if (value != null) {
+                    buffer.append(value);
+                }
+            }
+            buffer.append('\n');
+            if (buffer.length() >= COPY_BUFFER_SIZE) {
+                flush();
+            }
+            progress.accept(lineNo);
+        }
+
+        void flush() {
+            if (buffer.isEmpty()) {
+                return;
+            }
+            byte[] bytes = buffer.toString().getBytes(StandardCharsets.UTF_8);
+            try {
+                copyIn.writeToCopy(bytes, 0, bytes.length);
+            } catch (SQLException e) {
+                System.err.println("Error writing import to staging table: " + e.getMessage());
+                throw new IllegalStateException("Error writing import to staging table", e);
+            }
+            buffer.setLength(0);
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package itmo.labs.service;
+
+import itmo.labs.dto.CacheRegionStatsDTO;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.stereotype.Service;
+
+import jakarta.persistence.EntityManagerFactory;
+
+@Service
+public class CacheStatisticsService {
+
+    private final Statistics statistics;
+
+    public CacheStatisticsService(EntityManagerFactory entityManagerFactory) {
+        this.statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    /**
+     * Get hit/miss counters of every second-level cache region
+     *
+     * @return statistics per region
+     */
+    public List<CacheRegionStatsDTO> getSecondLevelCacheStats() {
+        return Arrays.stream(statistics.getSecondLevelCacheRegionNames())
+                .sorted()
+                .map(region -> {
+                    CacheRegionStatistics regionStats = statistics.getCacheRegionStatistics(region);
+                    return new CacheRegionStatsDTO(region, regionStats.getHitCount(), regionStats.getMissCount(),
+                            regionStats.getPutCount(), regionStats.getElementCountInMemory());
+                })
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,395 @@
+package itmo.labs.service;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.function.IntConsumer;
+import java.util.function.IntSupplier;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import io.minio.GetObjectArgs;
+import io.minio.ListObjectsArgs;
+import io.minio.MinioClient;
+import io.minio.PutObjectArgs;
+import io.minio.Result;
+import io.minio.messages.Item;
+import itmo.labs.dto.CoordinatesDTO;
+import itmo.labs.dto.LocationDTO;
+import itmo.labs.dto.RouteDTO;
+import itmo.labs.model.ImportHistory;
+import itmo.labs.model.ImportHistory.ImportStatus;
+import itmo.labs.model.User;
+import itmo.labs.repository.ImportHistoryRepository;
+import itmo.labs.utils.RouteImportFormat;
+
+/**
+ * The CHUNKED import mode. Entries are validated and saved in chunks of
+ * import.chunk-size, each committed in its own transaction together with
+ * the counters and the checkpoint of the import, so a retried job continues
+ * after the last committed chunk. A chunk is first saved in one batch; when
+ * that fails it is saved again entry by entry, each entry in a transaction
+ * of its own that also moves the checkpoint past it, and the entries that
+ * fail are reported instead of rolling back the chunk. A failed save leaves
+ * its transaction rollback-only, so the entries cannot share one. Failed
+ * entries are listed in an error report object in MinIO.
+ */
+@Service
+public class ChunkedRouteImporter {
+
+    private static final String CHECKPOINT_SQL = "UPDATE import_history SET records_imported = ?, "
+            + "records_failed = ?, records_skipped = ?, checkpoint = ?, heartbeat_at = localtimestamp "
+            + "WHERE id = ? AND attempts = ? AND status = 'RUNNING'";
+    private static final String ERROR_REPORT_HEADER = "entry,error\n";
+    private static final long REPORT_PART_SIZE = 10 * 1024 * 1024;
+
+    private final TransactionTemplate transactionTemplate;
+    private final JdbcTemplate jdbcTemplate;
+    private final RouteService routeService;
+    private final DatasetVersionService datasetVersionService;
+    private final CoordinatesService coordinatesService;
+    private final LocationService locationService;
+    private final ImportValidator importValidator;
+    private final RouteImportService routeImportService;
+    private final UserService userService;
+    private final ImportHistoryRepository importHistoryRepository;
+    private final MinioClient minioClient;
+    private final StorageCleanupService storageCleanupService;
+    private final int chunkSize;
+    private final int maxFailedRows;
+
+    public ChunkedRouteImporter(PlatformTransactionManager transactionManager, JdbcTemplate jdbcTemplate,
+            RouteService routeService, DatasetVersionService datasetVersionService,
+            CoordinatesService coordinatesService, LocationService locationService, ImportValidator importValidator,
+            RouteImportService routeImportService, UserService userService,
+            ImportHistoryRepository importHistoryRepository, MinioClient minioClient,
+            StorageCleanupService storageCleanupService,
+            @Value("${import.chunk-size:5000}") int chunkSize,
+            @Value("${import.max-failed-rows:10000}") int maxFailedRows) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.transactionTemplate.setIsolationLevel(TransactionDefinition.ISOLATION_READ_COMMITTED);
+        this.jdbcTemplate = jdbcTemplate;
+        this.routeService = routeService;
+        this.datasetVersionService = datasetVersionService;
+        this.coordinatesService = coordinatesService;
+        this.locationService = locationService;
+        this.importValidator = importValidator;
+        this.routeImportService = routeImportService;
+        this.userService = userService;
+        this.importHistoryRepository = importHistoryRepository;
+        this.minioClient = minioClient;
+        this.storageCleanupService = storageCleanupService;
+        this.chunkSize = chunkSize;
+        this.maxFailedRows = maxFailedRows;
+    }
+
+    /**
+     * Import the routes of a claimed CHUNKED import job, continuing after its
+     * checkpoint
+     *
+     * @param history  the import, claimed by the calling worker
+     * @param input    the import file as stored
+     * @param progress called with the number of entries read so far
+     */
+    public void importRoutes(ImportHistory history, InputStream input, IntConsumer progress) throws Exception {
+        User currentUser;
+        try {
+            currentUser = userService.getUserByUsername(history.getPerformedBy());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("User not found: " + history.getPerformedBy());
+        }
+        ChunkHandler handler = new ChunkHandler(history, currentUser, progress);
+        routeImportService.formatOf(history).parse(routeImportService.decompress(history, input), handler);
+        handler.commitChunk();
+        finish(history, handler);
+    }
+
+    private void finish(ImportHistory history, ChunkHandler handler) throws Exception {
+        String reportKey = handler.failed > 0 ? composeErrorReport(history, false) : null;
+        transactionTemplate.executeWithoutResult(status -> {
+            // a worker whose lease ran out must not commit over the one that took the job over
+            Integer attempts = importHistoryRepository.lockAttempts(history.getId());
+            if (attempts == null || attempts != history.getAttempts()) {
+                throw new IllegalStateException("Import " + history.getId() + " was taken over by another worker");
+            }
+            history.setRecordsImported(handler.imported);
+            history.setRecordsFailed(handler.failed);
+            history.setRecordsSkipped(handler.skipped);
+            history.setCheckpoint(handler.entriesRead);
+            history.setErrorReportKey(reportKey);
+            if (handler.failed == 0 && handler.skipped == 0) {
+                history.setStatus(ImportStatus.SUCCESS);
+            } else {
+                history.setStatus(ImportStatus.PARTIAL);
+                history.setErrorMessage(handler.failed + " row(s) failed" + (handler.skipped > 0
+                        ? ", " + handler.skipped + " row(s) skipped after " + maxFailedRows + " failures"
+                        : "") + ", see the error report");
+            }
+            importHistoryRepository.save(history);
+        });
+    }
+
+    /**
+     * Concatenate the error report parts of the chunks into one object
+     *
+     * @param keepParts keep the parts for an import that may be resumed, its
+     *                  next report is composed from them again
+     * @return key of the report
+     */
+    String composeErrorReport(ImportHistory history, boolean keepParts) throws Exception {
+        String partsPrefix = reportPrefix(history) + "errors/";
+        List<String> parts = new ArrayList<>();
+        for (Result<Item> result : minioClient.listObjects(ListObjectsArgs.builder()
+                .bucket(RouteImportService.BUCKET)
+                .prefix(partsPrefix)
+                .build())) {
+            parts.add(result.get().objectName());
+        }
+        // part names are zero-padded entry numbers, so they sort in file order
+        Collections.sort(parts);
+
+        List<InputStream> streams = new ArrayList<>();
+        streams.add(new ByteArrayInputStream(ERROR_REPORT_HEADER.getBytes(StandardCharsets.UTF_8)));
+        for (String part : parts) {
+            streams.add(minioClient.getObject(GetObjectArgs.builder()
+                    .bucket(RouteImportService.BUCKET)
+                    .object(part)
+                    .build()));
+        }
+        String reportKey = reportPrefix(history) + "errors.csv";
+        try (InputStream report = new SequenceInputStream(Collections.enumeration(streams))) {
+            minioClient.putObject(PutObjectArgs.builder()
+                    .bucket(RouteImportService.BUCKET)
+                    .object(reportKey)
+                    .stream(report, -1, REPORT_PART_SIZE)
+                    .contentType("text/csv")
+                    .build());
+        }
+        if (!keepParts) {
+            storageCleanupService.schedule("error-report-parts", parts);
+        }
+        return reportKey;
+    }
+
+    private static String reportPrefix(ImportHistory history) {
+        String objectKey = history.getObjectKey();
+        return objectKey.substring(0, objectKey.lastIndexOf('/') + 1);
+    }
+
+    private record Entry(int number, Object dto) {
+    }
+
+    /**
+     * Collects the entries of one chunk and commits them
+     */
+    private final class ChunkHandler implements RouteImportFormat.Handler {
+        private final ImportHistory history;
+        private final User currentUser;
+        private final IntConsumer progress;
+        // unlimited, the errors of every chunk are drained into its report part
+        private final ImportValidator.Report report = importValidator.newUnlimitedReport();
+        private final List<Entry> chunk = new ArrayList<>();
+        private final int checkpoint;
+        private int entriesRead;
+        private int imported;
+        private int failed;
+        private int skipped;
+
+        ChunkHandler(ImportHistory history, User currentUser, IntConsumer progress) {
+            this.history = history;
+            this.currentUser = currentUser;
+            this.progress = progress;
+            this.checkpoint = history.getCheckpoint();
+            this.imported = history.getRecordsImported();
+            this.failed = history.getRecordsFailed();
+            this.skipped = history.getRecordsSkipped();
+        }
+
+        @Override
+        public void coordinates(CoordinatesDTO coordinates) {
+            add(coordinates);
+        }
+
+        @Override
+        public void location(LocationDTO location) {
+            add(location);
+        }
+
+        @Override
+        public void route(RouteDTO route) {
+            route.setCreatedById(currentUser.getId());
+            route.setCreatedByUsername(currentUser.getUsername());
+            add(route);
+        }
+
+        private void add(Object dto) {
+            entriesRead++;
+            if (entriesRead <= checkpoint) {
+                // committed by an earlier attempt of the job
+            } else if (failed >= maxFailedRows) {
+                skipped++;
+            } else {
+                chunk.add(new Entry(entriesRead, dto));
+                if (chunk.size() >= chunkSize) {
+                    commitChunk();
+                }
+            }
+            progress.accept(entriesRead);
+        }
+
+        void commitChunk() {
+            if (chunk.isEmpty()) {
+                return;
+            }
+            validate();
+            NavigableMap<Integer, String> errors = new TreeMap<>(report.drainErrors());
+            List<Entry> valid = new ArrayList<>(chunk);
+            valid.removeIf(entry -> errors.containsKey(entry.number()));
+            int last = chunk.get(chunk.size() - 1).number();
+            try {
+                commit(errors, last, () -> saveBatch(valid));
+            } catch (TakenOverException | ReportException e) {
+                throw e;
+            } catch (RuntimeException e) {
+                // one of the entries broke the batch, save them one by one to find it
+                for (Entry entry : valid) {
+                    try {
+                        commit(errors.headMap(entry.number(), false), entry.number(), () -> {
+                            saveEntry(entry);
+                            return 1;
+                        });
+                    } catch (TakenOverException | ReportException saveException) {
+                        throw saveException;
+                    } catch (RuntimeException saveException) {
+                        errors.put(entry.number(), message(entry, saveException));
+                    }
+                }
+                commit(errors, last, () -> 0);
+            }
+            chunk.clear();
+        }
+
+        private void validate() {
+            List<RouteDTO> routes = new ArrayList<>();
+            List<Integer> routeEntries = new ArrayList<>();
+            for (Entry entry : chunk) {
+                if (entry.dto() instanceof RouteDTO route) {
+                    routes.add(route);
+                    routeEntries.add(entry.number());
+                } else {
+                    importValidator.validateEntry(entry.number(), entry.dto(), report);
+                }
+            }
+            if (!routes.isEmpty()) {
+                importValidator.validateRoutes(routes, routeEntries, report);
+            }
+        }
+
+        /**
+         * Save entries in a new transaction that also reports the given errors
+         * and moves the checkpoint to upTo. The errors are removed once the
+         * transaction commits
+         */
+        private void commit(SortedMap<Integer, String> errors, int upTo, IntSupplier save) {
+            int created = transactionTemplate.execute(status -> {
+                int saved = save.getAsInt();
+                writeReportPart(errors);
+                // the counters commit with the entries; no row means another worker has taken the job over
+                if (jdbcTemplate.update(CHECKPOINT_SQL, imported + saved, failed + errors.size(), skipped, upTo,
+                        history.getId(), history.getAttempts()) == 0) {
+                    throw new TakenOverException(history.getId());
+                }
+                return saved;
+            });
+            imported += created;
+            failed += errors.size();
+            errors.clear();
+        }
+
+        private int saveBatch(List<Entry> valid) {
+            int created = 0;
+            List<RouteDTO> routes = new ArrayList<>();
+            for (Entry entry : valid) {
+                if (entry.dto() instanceof RouteDTO route) {
+                    routes.add(route);
+                } else {
+                    saveEntry(entry);
+                    created++;
+                }
+            }
+            if (!routes.isEmpty()) {
+                created += routeService.createRoutes(routes);
+                datasetVersionService.bump();
+            }
+            return created;
+        }
+
+        private void saveEntry(Entry entry) {
+            if (entry.dto() instanceof CoordinatesDTO coordinates) {
+                coordinatesService.saveCoordinates(RouteDTO.convertToEntity(coordinates));
+            } else if (entry.dto() instanceof LocationDTO location) {
+                locationService.saveLocation(RouteDTO.convertToEntity(location));
+            } else {
+                // flushed before its audit event, so a failed Route leaves none behind
+                routeService.createRoute((RouteDTO) entry.dto());
+            }
+        }
+
+        private String message(Entry entry, RuntimeException e) {
+            if (e instanceof DataIntegrityViolationException && entry.dto() instanceof RouteDTO route) {
+                return "Route with this name already exists: " + route.getName();
+            }
+            return NestedExceptionUtils.getMostSpecificCause(e).getMessage();
+        }
+
+        private void writeReportPart(SortedMap<Integer, String> errors) {
+            if (errors.isEmpty()) {
+                return;
+            }
+            StringBuilder part = new StringBuilder();
+            errors.forEach((number, error) -> part.append(number).append(",\"")
+                    .append(String.valueOf(error).replace("\"", "\"\"")).append("\"\n"));
+            byte[] bytes = part.toString().getBytes(StandardCharsets.UTF_8);
+            // named after its first error, which lies past the checkpoint, so a retry overwrites the part
+            String key = reportPrefix(history) + "errors/" + String.format("%010d", errors.firstKey());
+            try {
+                minioClient.putObject(PutObjectArgs.builder()
+                        .bucket(RouteImportService.BUCKET)
+                        .object(key)
+                        .stream(new ByteArrayInputStream(bytes), bytes.length, -1)
+                        .contentType("text/csv")
+                        .build());
+            } catch (Exception e) {
+                throw new ReportException(e);
+            }
+        }
+    }
+
+    private static final class TakenOverException extends IllegalStateException {
+        TakenOverException(long id) {
+            super("Import " + id + " was taken over by another worker");
+        }
+    }
+
+    // not the fault of an entry, so the chunk is not retried entry by entry
+    private static final class ReportException extends IllegalStateException {
+        ReportException(Exception cause) {
+            super("Error writing the error report to MinIO: " + cause.getMessage(), cause);
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package itmo.labs.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.sql.init.dependency.DependsOnDatabaseInitialization;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Monotonic version of the route dataset (routes and the locations they
+ * reference), used as the ETag of the listing endpoints so that an unchanged
+ * dataset is answered with 304 without running the listing query. The
+ * version is the sequence dataset_version_seq (see schema-postgresql.sql),
+ * advanced after each change commits. A sequence takes no row lock, so
+ * concurrent changes do not queue on the version, and advancing it only
+ * after the commit keeps a new version from being paired with the old data.
+ * Every node keeps the version in memory: its own changes update it at once,
+ * those of other nodes are picked up within dataset-version.cache-ttl-ms.
+ * A node that dies between a commit and advancing the version leaves that
+ * change unversioned until the next one.
+ */
+@Service
+@DependsOnDatabaseInitialization
+public class DatasetVersionService {
+
+    private static final String BUMP_SQL = "SELECT nextval('dataset_version_seq')";
+    private static final String VERSION_SQL = "SELECT last_value FROM dataset_version_seq";
+    // bound to a transaction that has already registered its bump
+    private static final Object BUMP_KEY = new Object();
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final long cacheTtlMs;
+
+    private volatile CachedVersion cached;
+
+    public DatasetVersionService(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+            @Value("${dataset-version.cache-ttl-ms:1000}") long cacheTtlMs) {
+        this.jdbcTemplate = jdbcTemplate;
+        // the transaction that made the change has ended, the bump needs one of its own
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.cacheTtlMs = cacheTtlMs;
+    }
+
+    /**
+     * Advance the version once the caller's transaction commits, or at once
+     * outside of a transaction. Several calls in one transaction advance it
+     * once
+     */
+    public void bump() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            advance();
+            return;
+        }
+        if (TransactionSynchronizationManager.hasResource(BUMP_KEY)) {
+            return;
+        }
+        TransactionSynchronizationManager.bindResource(BUMP_KEY, Boolean.TRUE);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                advance();
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(BUMP_KEY);
+            }
+        });
+    }
+
+    private void advance() {
+        try {
+            long version = transactionTemplate.execute(status -> jdbcTemplate.queryForObject(BUMP_SQL, Long.class));
+            remember(version);
+        } catch (RuntimeException e) {
+            // the change is committed; other nodes see it once the next change advances the version
+            System.err.println("Failed to advance the dataset version: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Get the strong ETag of the current version, read from the database at
+     * most once per dataset-version.cache-ttl-ms
+     *
+     * @return the quoted ETag value
+     */
+    public String etag() {
+        CachedVersion current = cached;
+        if (current == null || System.currentTimeMillis() - current.readAt() >= cacheTtlMs) {
+            current = remember(jdbcTemplate.queryForObject(VERSION_SQL, Long.class));
+        }
+        return "\"" + current.version() + "\"";
+    }
+
+    private synchronized CachedVersion remember(long version) {
+        CachedVersion current = cached;
+        // the sequence only grows, a slow reader must not undo a version advanced meanwhile
+        cached = new CachedVersion(current == null ? version : Math.max(version, current.version()),
+                System.currentTimeMillis());
+        return cached;
+    }
+
+    private record CachedVersion(long version, long readAt) {
+    }
+}
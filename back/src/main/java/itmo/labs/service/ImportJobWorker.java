@@ -0,0 +1,289 @@
+package itmo.labs.service;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import itmo.labs.controller.RouteWebSocketController;
+import itmo.labs.dto.ImportHistoryUpdateDTO;
+import itmo.labs.dto.RouteUpdateDTO;
+import itmo.labs.model.ImportHistory;
+import itmo.labs.model.ImportHistory.ImportMode;
+import itmo.labs.model.ImportHistory.ImportStatus;
+import itmo.labs.model.OperationType;
+import itmo.labs.repository.ImportHistoryRepository;
+import itmo.labs.utils.CountingInputStream;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Runs queued imports. PENDING import_history rows are claimed with
+ * {@code FOR UPDATE SKIP LOCKED}, so any number of nodes can poll the same
+ * table without taking the same job. A claimed job is kept alive by a
+ * heartbeat; when a node dies its jobs' heartbeats go stale and another
+ * worker claims them again. Every claim increments {@code attempts}, which
+ * fences out a worker that lost its claim. Heartbeats run on their own
+ * thread, so slow scheduled tasks sharing Spring's scheduler cannot delay
+ * them past the lease. The file of a failed import is
+ * handed to {@link StorageCleanupService} in the transaction that fails it.
+ * A CHUNKED import that fails after committing chunks keeps its routes, so
+ * it ends PARTIAL with its committed counters, its error report and its
+ * file, and can be resumed from its checkpoint.
+ */
+@Service
+public class ImportJobWorker {
+
+    private static final String CLAIM_SQL = "UPDATE import_history SET status = 'RUNNING', "
+            + "started_at = localtimestamp, heartbeat_at = localtimestamp, attempts = attempts + 1 "
+            + "WHERE id = (SELECT id FROM import_history WHERE status = 'PENDING' "
+            + "OR (status = 'RUNNING' AND heartbeat_at < localtimestamp - make_interval(secs => ?)) "
+            + "ORDER BY id LIMIT 1 FOR UPDATE SKIP LOCKED) RETURNING id";
+    private static final String HEARTBEAT_SQL = "UPDATE import_history SET heartbeat_at = localtimestamp "
+            + "WHERE id = ? AND attempts = ? AND status = 'RUNNING'";
+    // locks the job while it is failed; no row means another worker has taken it over
+    private static final String PROGRESS_SQL = "SELECT records_imported, records_failed, records_skipped, checkpoint "
+            + "FROM import_history WHERE id = ? AND attempts = ? AND status = 'RUNNING' FOR UPDATE";
+    private static final String FAIL_SQL = "UPDATE import_history SET status = 'FAILURE', error_message = ?, "
+            + "object_key = NULL WHERE id = ?";
+    private static final String PARTIAL_SQL = "UPDATE import_history SET status = 'PARTIAL', error_message = ?, "
+            + "error_report_key = ? WHERE id = ?";
+    private static final String REQUEUE_SQL = "UPDATE import_history SET status = 'PENDING', heartbeat_at = NULL "
+            + "WHERE id = ? AND attempts = ? AND status = 'RUNNING'";
+    private static final int ERROR_MESSAGE_LENGTH = 4000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ImportHistoryRepository importHistoryRepository;
+    private final RouteImportService routeImportService;
+    private final ChunkedRouteImporter chunkedRouteImporter;
+    private final StorageCleanupService storageCleanupService;
+    private final RouteWebSocketController routeWebSocketController;
+    private final int workers;
+    private final long heartbeatIntervalMs;
+    private final long leaseSeconds;
+    private final int maxAttempts;
+    private final long progressIntervalMs;
+    private final long shutdownTimeoutMs;
+    private final ExecutorService executor;
+    private final ScheduledExecutorService heartbeatExecutor;
+
+    // job ID -> attempt of the jobs running on this node
+    private final Map<Long, Integer> running = new ConcurrentHashMap<>();
+    private volatile boolean stopping;
+
+    public ImportJobWorker(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+            ImportHistoryRepository importHistoryRepository, RouteImportService routeImportService,
+            ChunkedRouteImporter chunkedRouteImporter, StorageCleanupService storageCleanupService,
+            RouteWebSocketController routeWebSocketController,
+            @Value("${import.workers:2}") int workers,
+            @Value("${import.heartbeat-interval-ms:30000}") long heartbeatIntervalMs,
+            @Value("${import.lease-seconds:120}") long leaseSeconds,
+            @Value("${import.max-attempts:5}") int maxAttempts,
+            @Value("${import.progress-interval-ms:1000}") long progressIntervalMs,
+            @Value("${import.shutdown-timeout-ms:30000}") long shutdownTimeoutMs) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.importHistoryRepository = importHistoryRepository;
+        this.routeImportService = routeImportService;
+        this.chunkedRouteImporter = chunkedRouteImporter;
+        this.storageCleanupService = storageCleanupService;
+        this.routeWebSocketController = routeWebSocketController;
+        this.workers = workers;
+        this.heartbeatIntervalMs = heartbeatIntervalMs;
+        this.leaseSeconds = leaseSeconds;
+        this.maxAttempts = maxAttempts;
+        this.progressIntervalMs = progressIntervalMs;
+        this.shutdownTimeoutMs = shutdownTimeoutMs;
+        AtomicInteger threads = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(workers,
+                task -> new Thread(task, "import-worker-" + threads.incrementAndGet()));
+        this.heartbeatExecutor = Executors.newSingleThreadScheduledExecutor(
+                task -> new Thread(task, "import-heartbeat"));
+    }
+
+    @PostConstruct
+    public void start() {
+        heartbeatExecutor.scheduleWithFixedDelay(this::heartbeat, heartbeatIntervalMs, heartbeatIntervalMs,
+                TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Claim queued imports while this node has idle workers
+     */
+    @Scheduled(fixedDelayString = "${import.poll-interval-ms:1000}")
+    public void poll() {
+        while (!stopping && running.size() < workers) {
+            List<Long> claimed = jdbcTemplate.queryForList(CLAIM_SQL, Long.class, leaseSeconds);
+            if (claimed.isEmpty()) {
+                return;
+            }
+            ImportHistory job = importHistoryRepository.findById(claimed.get(0)).orElseThrow();
+            running.put(job.getId(), job.getAttempts());
+            executor.execute(() -> run(job));
+        }
+    }
+
+    /**
+     * Renew the claims of the imports running on this node
+     */
+    void heartbeat() {
+        running.forEach((id, attempt) -> {
+            try {
+                jdbcTemplate.update(HEARTBEAT_SQL, id, attempt);
+            } catch (Exception e) {
+                // an exception would cancel the schedule, the next heartbeat tries again
+                System.err.println("Failed to renew the claim of import " + id + ": " + e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Stop claiming jobs and hand the running ones back to the queue
+     */
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        stopping = true;
+        executor.shutdown();
+        // claims are renewed until the running imports have been handed back
+        executor.awaitTermination(shutdownTimeoutMs, TimeUnit.MILLISECONDS);
+        heartbeatExecutor.shutdownNow();
+    }
+
+    private void run(ImportHistory job) {
+        // the import runs with the permissions of the user who uploaded the file
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(job.getPerformedBy(), null, List.of()));
+        try {
+            if (job.getAttempts() > maxAttempts) {
+                fail(job, "Import gave up after " + maxAttempts + " attempts");
+                return;
+            }
+            routeWebSocketController.notifyImportHistoryChange(new ImportHistoryUpdateDTO(job));
+            try (CountingInputStream input = new CountingInputStream(routeImportService.openImportFile(job))) {
+                Progress progress = new Progress(job, input);
+                if (job.getMode() == ImportMode.CHUNKED) {
+                    chunkedRouteImporter.importRoutes(job, input, progress::report);
+                } else {
+                    routeImportService.importRoutes(job, input, progress::report);
+                }
+            }
+            routeWebSocketController.notifyImportHistoryChange(new ImportHistoryUpdateDTO(job));
+            routeWebSocketController
+                    .notifyRouteChange(new RouteUpdateDTO(OperationType.CREATE, job.getRecordsImported(), null));
+        } catch (Exception e) {
+            fail(job, e.getMessage());
+        } finally {
+            running.remove(job.getId());
+            SecurityContextHolder.clearContext();
+        }
+    }
+
+    private void fail(ImportHistory job, String message) {
+        if (stopping) {
+            // the import was rolled back, the next node to start picks it up again
+            jdbcTemplate.update(REQUEUE_SQL, job.getId(), job.getAttempts());
+            return;
+        }
+        String failure = message != null ? truncate(message) : null;
+        // the file is only removed once the failure is committed, MinIO is not waited for
+        ImportStatus status = transactionTemplate.execute(transaction -> {
+            boolean claimed = !jdbcTemplate.query(PROGRESS_SQL, (rs, rowNum) -> {
+                job.setRecordsImported(rs.getInt("records_imported"));
+                job.setRecordsFailed(rs.getInt("records_failed"));
+                job.setRecordsSkipped(rs.getInt("records_skipped"));
+                job.setCheckpoint(rs.getInt("checkpoint"));
+                return rowNum;
+            }, job.getId(), job.getAttempts()).isEmpty();
+            if (!claimed) {
+                return null;
+            }
+            if (job.getCheckpoint() > 0) {
+                // committed chunks stay, the file is kept for the rest of the entries
+                String stopped = truncate("Import stopped after entry " + job.getCheckpoint() + ": " + failure);
+                job.setErrorReportKey(job.getRecordsFailed() > 0 ? errorReport(job) : null);
+                job.setErrorMessage(stopped);
+                jdbcTemplate.update(PARTIAL_SQL, stopped, job.getErrorReportKey(), job.getId());
+                return ImportStatus.PARTIAL;
+            }
+            jdbcTemplate.update(FAIL_SQL, failure, job.getId());
+            if (job.getObjectKey() != null) {
+                storageCleanupService.schedule("import-failed", List.of(job.getObjectKey()));
+            }
+            job.setErrorMessage(failure);
+            job.setObjectKey(null);
+            return ImportStatus.FAILURE;
+        });
+        // nothing to do when another worker has taken the job over
+        if (status == null) {
+            return;
+        }
+        job.setStatus(status);
+        routeWebSocketController.notifyImportHistoryChange(new ImportHistoryUpdateDTO(job));
+    }
+
+    private String errorReport(ImportHistory job) {
+        try {
+            return chunkedRouteImporter.composeErrorReport(job, true);
+        } catch (Exception e) {
+            // the parts stay under the prefix of the kept file, the sweep does not take them
+            System.err.println("Failed to compose the error report of import " + job.getId() + ": "
+                    + e.getMessage());
+            return null;
+        }
+    }
+
+    private static String truncate(String message) {
+        return message.length() > ERROR_MESSAGE_LENGTH ? message.substring(0, ERROR_MESSAGE_LENGTH) : message;
+    }
+
+    /**
+     * Throttled progress notifications of one running import
+     */
+    private final class Progress {
+        private final ImportHistory job;
+        private final CountingInputStream input;
+        private final long startedAt = System.nanoTime();
+        private long reportedAt = startedAt;
+
+        Progress(ImportHistory job, CountingInputStream input) {
+            this.job = job;
+            this.input = input;
+        }
+
+        void report(int records) {
+            if (stopping) {
+                throw new IllegalStateException("Import interrupted by shutdown");
+            }
+            long now = System.nanoTime();
+            if (now - reportedAt < TimeUnit.MILLISECONDS.toNanos(progressIntervalMs)) {
+                return;
+            }
+            reportedAt = now;
+            double seconds = (now - startedAt) / 1e9;
+            ImportHistoryUpdateDTO update = new ImportHistoryUpdateDTO(job);
+            update.setRecordsProcessed(records);
+            update.setRecordsPerSecond(records / seconds);
+            // the file is read front to back, so the share of bytes read predicts the remaining time
+            long bytesRead = input.getCount();
+            if (bytesRead > 0) {
+                long bytesLeft = Math.max(job.getFileSize() - bytesRead, 0);
+                update.setEtaSeconds((long) (seconds * bytesLeft / bytesRead));
+            }
+            routeWebSocketController.notifyImportHistoryChange(update);
+        }
+    }
+}
@@ -0,0 +1,254 @@
+package itmo.labs.service;
+
+import java.io.InputStream;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import io.minio.ComposeObjectArgs;
+import io.minio.ComposeSource;
+import io.minio.MinioClient;
+import io.minio.PutObjectArgs;
+import io.minio.StatObjectArgs;
+import io.minio.errors.ErrorResponseException;
+import itmo.labs.model.ImportHistory;
+import itmo.labs.model.ImportHistory.ImportMode;
+import itmo.labs.model.ImportUpload;
+import itmo.labs.model.User;
+import itmo.labs.repository.ImportUploadRepository;
+import itmo.labs.utils.ImportCompression;
+
+/**
+ * Resumable uploads of import files. The client creates an upload with the
+ * size of the file and sends it in chunks, each starting at the offset the
+ * server has confirmed. Every chunk is streamed to MinIO as its own part
+ * object and the parts are composed server-side when the last one arrives,
+ * so a dropped connection only costs the chunk in flight.
+ */
+@Service
+public class ImportUploadService {
+
+    // MinIO composes sources of at least 5 MiB, except the last one
+    public static final long MIN_CHUNK_SIZE = 5L * 1024 * 1024;
+
+    private final ImportUploadRepository importUploadRepository;
+    private final RouteImportService routeImportService;
+    private final UserService userService;
+    private final MinioClient minioClient;
+    private final StorageCleanupService storageCleanupService;
+    private final TransactionTemplate transactionTemplate;
+    private final long expiryHours;
+
+    public ImportUploadService(ImportUploadRepository importUploadRepository, RouteImportService routeImportService,
+            UserService userService, MinioClient minioClient, StorageCleanupService storageCleanupService,
+            PlatformTransactionManager transactionManager,
+            @Value("${import.upload-expiry-hours:24}") long expiryHours) {
+        this.importUploadRepository = importUploadRepository;
+        this.routeImportService = routeImportService;
+        this.userService = userService;
+        this.minioClient = minioClient;
+        this.storageCleanupService = storageCleanupService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.expiryHours = expiryHours;
+    }
+
+    /**
+     * Start an upload of the current user
+     *
+     * @param filename original name of the file
+     * @param size     size of the file in bytes
+     * @param mode     how to import the file, null to choose by its size
+     * @param force    import the file even if it was imported recently
+     */
+    public ImportUpload create(String filename, long size, ImportMode mode, boolean force) {
+        if (size <= 0) {
+            throw new IllegalArgumentException("File not selected for import (or file is empty).");
+        }
+        // rejected before any of the file is sent
+        routeImportService.resolveFormat(filename, null);
+        String currentUsername = SecurityContextHolder.getContext().getAuthentication().getName();
+        User currentUser;
+        try {
+            currentUser = userService.getUserByUsername(currentUsername);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("User not found: " + currentUsername);
+        }
+
+        ImportUpload upload = new ImportUpload();
+        upload.setId(UUID.randomUUID().toString());
+        upload.setPerformedBy(currentUser.getUsername());
+        upload.setObjectKey(currentUser.getUsername() + "_" + System.currentTimeMillis() + "/" + filename);
+        upload.setSize(size);
+        upload.setMode(mode);
+        upload.setForce(force);
+        upload.setCreatedAt(LocalDateTime.now());
+        upload.setUpdatedAt(upload.getCreatedAt());
+        return importUploadRepository.save(upload);
+    }
+
+    /**
+     * Find an upload of the current user
+     */
+    public ImportUpload get(String id) {
+        String currentUsername = SecurityContextHolder.getContext().getAuthentication().getName();
+        return importUploadRepository.findById(id)
+                .filter(upload -> upload.getPerformedBy().equals(currentUsername))
+                .orElseThrow(() -> new IllegalArgumentException("Upload not found: " + id));
+    }
+
+    /**
+     * Store the chunk of an upload starting at its current offset. The chunk
+     * that completes the file composes it and queues the import
+     *
+     * @param id     the upload
+     * @param start  offset of the chunk in the file
+     * @param length size of the chunk
+     * @param total  size of the file
+     * @param body   the chunk
+     * @return the upload after the chunk
+     * @throws IllegalStateException when the chunk does not start at the
+     *                               offset of the upload
+     */
+    public ImportUpload putChunk(String id, long start, long length, long total, InputStream body) throws Exception {
+        ImportUpload upload = get(id);
+        if (total != upload.getSize()) {
+            throw new IllegalArgumentException("Upload " + id + " has " + upload.getSize() + " bytes, not " + total);
+        }
+        if (upload.getUploadedBytes() == upload.getSize()) {
+            if (upload.getImportId() == null) {
+                // the chunks were stored but composing or queueing failed, the retried last chunk finishes it
+                complete(upload);
+            }
+            return upload;
+        }
+        if (start != upload.getUploadedBytes()) {
+            throw new IllegalStateException("Upload " + id + " continues at offset " + upload.getUploadedBytes());
+        }
+        long end = start + length;
+        if (length <= 0 || end > upload.getSize()) {
+            throw new IllegalArgumentException("Chunk " + start + "-" + end + " is outside of the file");
+        }
+        if (end < upload.getSize() && length < MIN_CHUNK_SIZE) {
+            throw new IllegalArgumentException("Chunks before the last one must have at least " + MIN_CHUNK_SIZE
+                    + " bytes");
+        }
+
+        // every request stores its chunk under a key of its own, a concurrent request for the same offset or a
+        // retry with other bytes cannot overwrite the part that was recorded
+        String partKey = upload.getObjectKey() + ".parts/" + String.format("%015d", start) + "-" + UUID.randomUUID();
+        minioClient.putObject(
+                PutObjectArgs.builder()
+                        .bucket(RouteImportService.BUCKET)
+                        .object(partKey)
+                        .stream(body, length, -1)
+                        .build());
+        if (importUploadRepository.advance(id, start, end, partKey) == 0) {
+            storageCleanupService.schedule("upload-chunk-lost", List.of(partKey));
+            throw new IllegalStateException("Upload " + id + " has already received the chunk at offset " + start);
+        }
+        upload.setUploadedBytes(end);
+        upload.setParts(upload.getParts() + 1);
+        upload.setPartKeys((upload.getPartKeys() != null ? upload.getPartKeys() : "") + partKey + "\n");
+        if (end == upload.getSize()) {
+            complete(upload);
+        }
+        return upload;
+    }
+
+    /**
+     * Compose the parts into the file and queue its import. The parts are
+     * only dropped in the transaction that queues the import, so a retried
+     * last chunk can run this again after any failure; a file composed by
+     * the failed attempt is not composed again
+     */
+    private void complete(ImportUpload upload) throws Exception {
+        if (!isStored(upload.getObjectKey())) {
+            List<ComposeSource> sources = new ArrayList<>();
+            for (String part : partKeys(upload)) {
+                sources.add(ComposeSource.builder()
+                        .bucket(RouteImportService.BUCKET)
+                        .object(part)
+                        .build());
+            }
+            minioClient.composeObject(
+                    ComposeObjectArgs.builder()
+                            .bucket(RouteImportService.BUCKET)
+                            .object(upload.getObjectKey())
+                            .sources(sources)
+                            .build());
+        }
+
+        ImportHistory history = new ImportHistory();
+        history.setTimestamp(LocalDateTime.now());
+        history.setPerformedBy(upload.getPerformedBy());
+        history.setCompression(ImportCompression.detect(upload.getObjectKey(), null));
+        history.setFormat(routeImportService.resolveFormat(upload.getObjectKey(), null).getName());
+        // the chunks arrived in separate requests, so the file is hashed once composed
+        String contentHash = routeImportService.hashStoredFile(upload.getObjectKey());
+        transactionTemplate.executeWithoutResult(status -> {
+            ImportHistory queued = routeImportService.queueImport(history, upload.getObjectKey(), upload.getSize(),
+                    contentHash, upload.getMode(), upload.isForce());
+            upload.setImportId(queued.getId());
+            upload.setUpdatedAt(LocalDateTime.now());
+            importUploadRepository.save(upload);
+            removeParts(upload);
+        });
+    }
+
+    private boolean isStored(String objectKey) throws Exception {
+        try {
+            minioClient.statObject(StatObjectArgs.builder()
+                    .bucket(RouteImportService.BUCKET)
+                    .object(objectKey)
+                    .build());
+            return true;
+        } catch (ErrorResponseException e) {
+            if ("NoSuchKey".equals(e.errorResponse().code())) {
+                return false;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Drop uploads that have not changed for import.upload-expiry-hours
+     * together with the parts and the composed file of the unfinished ones
+     */
+    @Transactional
+    @Scheduled(fixedDelayString = "${import.upload-cleanup-interval-ms:3600000}")
+    public void removeExpired() {
+        for (ImportUpload upload : importUploadRepository
+                .findByUpdatedAtBefore(LocalDateTime.now().minusHours(expiryHours))) {
+            if (upload.getImportId() == null) {
+                removeParts(upload);
+                // composed by a last chunk whose import was never queued
+                storageCleanupService.schedule("upload-expired", List.of(upload.getObjectKey()));
+            }
+            importUploadRepository.delete(upload);
+        }
+    }
+
+    private void removeParts(ImportUpload upload) {
+        storageCleanupService.schedule("upload-parts", partKeys(upload));
+    }
+
+    private static List<String> partKeys(ImportUpload upload) {
+        List<String> keys = upload.getPartKeys() != null ? List.of(upload.getPartKeys().split("\n")) : List.of();
+        // uploads started before the parts had keys of their own stored their first parts numbered
+        List<String> parts = new ArrayList<>();
+        for (int part = 1; part <= upload.getParts() - keys.size(); part++) {
+            parts.add(upload.getObjectKey() + ".parts/" + String.format("%05d", part));
+        }
+        parts.addAll(keys);
+        return parts;
+    }
+}
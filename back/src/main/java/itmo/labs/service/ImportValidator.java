@@ -0,0 +1,215 @@
+package itmo.labs.service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import itmo.labs.dto.RouteDTO;
+import itmo.labs.repository.RouteRepository;
+import jakarta.annotation.PreDestroy;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+
+/**
+ * Validation stage of the entity import path. Chunks of parsed Routes are
+ * checked on a dedicated fork-join pool: Bean Validation constraints of the
+ * DTOs, coordinate ranges and name uniqueness within the file and against
+ * the database. Errors of the whole file are collected in one {@link Report}
+ * instead of stopping at the first one.
+ */
+@Service
+public class ImportValidator {
+
+    private final Validator validator;
+    private final RouteRepository routeRepository;
+    private final ForkJoinPool pool;
+    private final int maxReportedErrors;
+
+    public ImportValidator(Validator validator, RouteRepository routeRepository,
+            @Value("${import.validation-parallelism:0}") int parallelism,
+            @Value("${import.max-reported-errors:100}") int maxReportedErrors) {
+        this.validator = validator;
+        this.routeRepository = routeRepository;
+        this.pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+        this.maxReportedErrors = maxReportedErrors;
+    }
+
+    @PreDestroy
+    public void stop() {
+        pool.shutdown();
+    }
+
+    /**
+     * Start the report of one import file
+     */
+    public Report newReport() {
+        return new Report(maxReportedErrors);
+    }
+
+    /**
+     * Start the report of one import file that keeps every error message
+     */
+    public Report newUnlimitedReport() {
+        return new Report(Integer.MAX_VALUE);
+    }
+
+    /**
+     * Check the Bean Validation constraints of a standalone entry
+     *
+     * @param entry  number of the entry in the file
+     * @param dto    the parsed entry
+     * @param report collects the errors
+     */
+    public void validateEntry(int entry, Object dto, Report report) {
+        for (ConstraintViolation<Object> violation : validator.validate(dto)) {
+            report.add(entry, violation.getMessage());
+        }
+    }
+
+    /**
+     * Check a chunk of parsed Routes in parallel
+     *
+     * @param routes  the chunk
+     * @param entries number in the file of each Route of the chunk
+     * @param report  collects the errors and the names of earlier chunks
+     */
+    public void validateRoutes(List<RouteDTO> routes, List<Integer> entries, Report report) {
+        pool.submit(() -> IntStream.range(0, routes.size()).parallel()
+                .forEach(i -> validateRoute(entries.get(i), routes.get(i), report)))
+                .join();
+
+        // the first entry of a name keeps it, the later ones are duplicates
+        List<String> firstNames = new ArrayList<>();
+        for (int i = 0; i < routes.size(); i++) {
+            String key = nameKey(routes.get(i));
+            if (key == null) {
+                continue;
+            }
+            int first = report.names.get(key);
+            if (first != entries.get(i)) {
+                report.add(entries.get(i), "Duplicate route name found in import file: " + routes.get(i).getName()
+                        + " (first at entry " + first + ")");
+            } else {
+                firstNames.add(key);
+            }
+        }
+        if (firstNames.isEmpty()) {
+            return;
+        }
+        Set<String> taken = routeRepository.findLowerNamesIn(firstNames).stream()
+                .collect(Collectors.toSet());
+        for (int i = 0; i < routes.size(); i++) {
+            String key = nameKey(routes.get(i));
+            if (key != null && taken.contains(key) && report.names.get(key).equals(entries.get(i))) {
+                report.add(entries.get(i), "Route with this name already exists: " + routes.get(i).getName());
+            }
+        }
+    }
+
+    private void validateRoute(int entry, RouteDTO route, Report report) {
+        for (ConstraintViolation<RouteDTO> violation : validator.validate(route)) {
+            report.add(entry, violation.getMessage());
+        }
+        if (route.getCoordinates() != null && route.getCoordinates().getX() != null
+                && (route.getCoordinates().getX() < -180 || route.getCoordinates().getX() > 180)) {
+            report.add(entry, "Invalid X (latitude) for route: " + route.getName());
+        }
+        if (route.getCoordinates() != null && route.getCoordinates().getY() != null
+                && (route.getCoordinates().getY() < -90 || route.getCoordinates().getY() > 90)) {
+            report.add(entry, "Invalid Y (longitude) for route: " + route.getName());
+        }
+        String key = nameKey(route);
+        if (key != null) {
+            report.names.merge(key, entry, Math::min);
+        }
+    }
+
+    private static String nameKey(RouteDTO route) {
+        return route.getName() == null || route.getName().isBlank() ? null
+                : route.getName().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Errors of one import file. Only the first errors are kept with their
+     * messages, the rest are counted
+     */
+    public static final class Report {
+        private final int maxErrors;
+        // lower-cased name -> first entry with it, kept for the whole file
+        private final Map<String, Integer> names = new ConcurrentHashMap<>();
+        private final List<EntryError> errors = new ArrayList<>();
+        private final AtomicInteger errorCount = new AtomicInteger();
+
+        private Report(int maxErrors) {
+            this.maxErrors = maxErrors;
+        }
+
+        public void add(int entry, String message) {
+            errorCount.incrementAndGet();
+            synchronized (errors) {
+                if (errors.size() < maxErrors) {
+                    errors.add(new EntryError(entry, message));
+                }
+            }
+        }
+
+        public int getMaxErrors() {
+            return maxErrors;
+        }
+
+        /**
+         * Count errors whose messages were not kept
+         */
+        public void addOmitted(int count) {
+            errorCount.addAndGet(count);
+        }
+
+        /**
+         * Take the kept errors, the messages of one entry joined
+         *
+         * @return entry number -> messages
+         */
+        public Map<Integer, String> drainErrors() {
+            Map<Integer, String> drained = new TreeMap<>();
+            synchronized (errors) {
+                for (EntryError error : errors) {
+                    drained.merge(error.entry(), error.message(), (first, next) -> first + "; " + next);
+                }
+                errors.clear();
+            }
+            return drained;
+        }
+
+        public boolean hasErrors() {
+            return errorCount.get() > 0;
+        }
+
+        public String toMessage() {
+            List<EntryError> sorted;
+            synchronized (errors) {
+                sorted = new ArrayList<>(errors);
+            }
+            sorted.sort(Comparator.comparingInt(EntryError::entry));
+            String message = "Import file has " + errorCount.get() + " error(s): " + sorted.stream()
+                    .map(error -> "entry " + error.entry() + ": " + error.message())
+                    .collect(Collectors.joining("; "));
+            int omitted = errorCount.get() - sorted.size();
+            return omitted > 0 ? message + "; and " + omitted + " more" : message;
+        }
+
+        private record EntryError(int entry, String message) {
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package itmo.labs.service;
+
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.springframework.transaction.annotation.Transactional;
+
+import itmo.labs.model.Route;
+import itmo.labs.repository.RouteRepository;
+
+/**
+ * Fallback for databases without pg_trgm: matches with a portable
+ * {@code lower(name) LIKE} query and ranks the matches in memory with the same
+ * trigram similarity PostgreSQL uses, so the order of results does not depend
+ * on the database.
+ */
+public class InMemoryRouteNameSearch implements RouteNameSearch {
+
+    private final RouteRepository routeRepository;
+
+    public InMemoryRouteNameSearch(RouteRepository routeRepository) {
+        this.routeRepository = routeRepository;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<Route> search(String substring, int page, int size) {
+        String query = substring.toLowerCase(Locale.ROOT);
+        Set<String> queryTrigrams = trigrams(query);
+        Comparator<Route> byRelevance = Comparator
+                .comparingDouble((Route route) -> similarity(queryTrigrams, trigrams(route.getName().toLowerCase(Locale.ROOT))))
+                .reversed()
+                .thenComparing(Route::getId);
+        return routeRepository.findByNameLowerLike(RouteNameSearch.containsPattern(query))
+                .stream()
+                .sorted(byRelevance)
+                .skip((long) page * size)
+                .limit(size)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Trigrams of every word padded like pg_trgm does: two spaces in front,
+     * one behind
+     */
+    private static Set<String> trigrams(String text) {
+        Set<String> result = new HashSet<>();
+        for (String word : text.split("[^\\p{L}\\p{N}]+")) {
+            if (word.isEmpty()) {
+                continue;
+            }
+            String padded = "  " + word + " ";
+            for (int i = 0; i + 3 <= padded.length(); i++) {
+                result.add(padded.substring(i, i + 3));
+            }
+        }
+        return result;
+    }
+
+    private static double similarity(Set<String> a, Set<String> b) {
+        if (a.isEmpty() || b.isEmpty()) {
+            return 0;
+        }
+        long common = a.stream().filter(b::contains).count();
+        return (double) common / (a.size() + b.size() - common);
+    }
+}
@@ -1,15 +1,21 @@
 package itmo.labs.service;
 
+import itmo.labs.dto.PageDTO;
 import itmo.labs.model.Location;
 import itmo.labs.repository.LocationRepository;
+import itmo.labs.utils.KeysetPaging;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 @Service
 public class LocationService {
 
+    private static final Set<String> SORTABLE_FIELDS = Set.of("id", "name");
+
     private final LocationRepository locationRepository;
 
     public LocationService(LocationRepository locationRepository) {
@@ -27,7 +33,12 @@ public class LocationService {
         return locationRepository.findById(id);
     }
 
-    public List<Location> findAllLocations() {
-        return locationRepository.findAll();
+    @Transactional(readOnly = true)
+    public PageDTO<Location> findAllLocations(String after, Integer size, String sortBy) {
+        Sort sort = KeysetPaging.sort(sortBy, SORTABLE_FIELDS);
+        int pageSize = KeysetPaging.pageSize(size);
+        List<Location> rows = locationRepository.findBy(KeysetPaging.<Location>after(sortBy, after),
+                query -> query.sortBy(sort).limit(pageSize + 1).all());
+        return KeysetPaging.toPage(rows, pageSize, sortBy);
     }
 }
\ No newline at end of file
@@ -0,0 +1,92 @@
+package itmo.labs.service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import io.minio.GetPresignedObjectUrlArgs;
+import io.minio.MinioClient;
+import io.minio.errors.MinioException;
+import io.minio.http.Method;
+
+/**
+ * Download URLs of stored import files, signed when they are asked for. A
+ * signed URL is reused for a while, but dropped well before it expires, so
+ * a URL handed out is always valid for at least the difference.
+ */
+@Service
+public class PresignedUrlCache {
+
+    private final MinioClient minioClient;
+    private final int urlExpirySeconds;
+    private final long cacheTtlNanos;
+    private final int maxEntries;
+    // object key -> URL, least recently used first
+    private final Map<String, CachedUrl> urls;
+
+    public PresignedUrlCache(MinioClient minioClient,
+            @Value("${import.download-url-expiry-seconds:3600}") int urlExpirySeconds,
+            @Value("${import.download-url-cache-seconds:1800}") long cacheSeconds,
+            @Value("${import.download-url-cache-size:1000}") int maxEntries) {
+        if (cacheSeconds >= urlExpirySeconds) {
+            throw new IllegalArgumentException("import.download-url-cache-seconds must be less than "
+                    + "import.download-url-expiry-seconds");
+        }
+        this.minioClient = minioClient;
+        this.urlExpirySeconds = urlExpirySeconds;
+        this.cacheTtlNanos = TimeUnit.SECONDS.toNanos(cacheSeconds);
+        this.maxEntries = maxEntries;
+        this.urls = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedUrl> eldest) {
+                return size() > PresignedUrlCache.this.maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Get a download URL of a stored object
+     *
+     * @param objectKey the object
+     */
+    public String get(String objectKey) throws Exception {
+        long now = System.nanoTime();
+        synchronized (urls) {
+            CachedUrl cached = urls.get(objectKey);
+            if (cached != null && now - cached.signedAt() < cacheTtlNanos) {
+                return cached.url();
+            }
+        }
+        String url;
+        try {
+            url = minioClient.getPresignedObjectUrl(
+                    GetPresignedObjectUrlArgs.builder()
+                            .method(Method.GET)
+                            .bucket(RouteImportService.BUCKET)
+                            .object(objectKey)
+                            .expiry(urlExpirySeconds)
+                            .build());
+        } catch (MinioException e) {
+            throw new Exception("Error signing MinIO download URL: " + e.getMessage());
+        }
+        synchronized (urls) {
+            urls.put(objectKey, new CachedUrl(url, now));
+        }
+        return url;
+    }
+
+    /**
+     * Forget the URL of an object that has been removed
+     */
+    public void evict(String objectKey) {
+        synchronized (urls) {
+            urls.remove(objectKey);
+        }
+    }
+
+    private record CachedUrl(String url, long signedAt) {
+    }
+}
@@ -0,0 +1,20 @@
+package itmo.labs.service;
+
+import java.time.LocalDateTime;
+
+import itmo.labs.model.OperationType;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * A route_audit row waiting to be written by {@link RouteAuditLog}.
+ */
+@Getter
+@AllArgsConstructor
+public class RouteAuditEvent {
+    private final Integer routeId;
+    private final OperationType operationType;
+    private final LocalDateTime timestamp;
+    private final Integer performedById;
+    private final String description;
+}
@@ -0,0 +1,253 @@
+package itmo.labs.service;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import itmo.labs.dto.AuditStatsDTO;
+import itmo.labs.model.OperationType;
+import itmo.labs.model.User;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Write-behind log of route changes. Events are queued after the change
+ * commits and a background writer inserts them in JDBC batches, once a batch
+ * is full or the flush interval has passed, so auditing costs the request
+ * path one queue offer. The queue is bounded: when it is full the event is
+ * dropped and counted. A batch that fails to insert is retried with backoff;
+ * after audit.max-write-attempts its rows are written one by one, so only
+ * the rows that still fail are lost. Lost and dropped rows are reported as
+ * the last error of the stats. With {@code audit.synchronous=true} every
+ * event is written in the caller's transaction instead.
+ */
+@Service
+public class RouteAuditLog {
+
+    private static final String INSERT_SQL = "INSERT INTO route_audit "
+            + "(route_id, operation_type, timestamp, performed_by_id, description) VALUES (?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final boolean synchronous;
+    private final int queueCapacity;
+    private final int batchSize;
+    private final long flushIntervalMs;
+    private final long shutdownTimeoutMs;
+    private final int maxWriteAttempts;
+    private final long retryBackoffMs;
+    private final long retryBackoffMaxMs;
+    private final BlockingQueue<RouteAuditEvent> queue;
+
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong retried = new AtomicLong();
+    private volatile String lastError;
+    private volatile LocalDateTime lastErrorAt;
+
+    private volatile boolean running;
+    private Thread writer;
+
+    public RouteAuditLog(JdbcTemplate jdbcTemplate,
+            @Value("${audit.synchronous:false}") boolean synchronous,
+            @Value("${audit.queue-capacity:10000}") int queueCapacity,
+            @Value("${audit.batch-size:500}") int batchSize,
+            @Value("${audit.flush-interval-ms:1000}") long flushIntervalMs,
+            @Value("${audit.shutdown-timeout-ms:30000}") long shutdownTimeoutMs,
+            @Value("${audit.max-write-attempts:5}") int maxWriteAttempts,
+            @Value("${audit.retry-backoff-ms:1000}") long retryBackoffMs,
+            @Value("${audit.retry-backoff-max-ms:30000}") long retryBackoffMaxMs) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.synchronous = synchronous;
+        this.queueCapacity = queueCapacity;
+        this.batchSize = batchSize;
+        this.flushIntervalMs = flushIntervalMs;
+        this.shutdownTimeoutMs = shutdownTimeoutMs;
+        this.maxWriteAttempts = maxWriteAttempts;
+        this.retryBackoffMs = retryBackoffMs;
+        this.retryBackoffMaxMs = retryBackoffMaxMs;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (synchronous) {
+            return;
+        }
+        running = true;
+        writer = new Thread(this::drainLoop, "route-audit-writer");
+        writer.start();
+    }
+
+    /**
+     * Stop the writer once everything still queued has been written
+     */
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        if (writer == null) {
+            return;
+        }
+        running = false;
+        writer.join(shutdownTimeoutMs);
+        if (writer.isAlive()) {
+            writer.interrupt();
+        }
+    }
+
+    /**
+     * Record a route change performed by the user
+     *
+     * @param routeId       the changed Route ID
+     * @param operationType the kind of change
+     * @param performedBy   the user who made the change
+     * @param description   free-form details
+     */
+    public void record(Integer routeId, OperationType operationType, User performedBy, String description) {
+        RouteAuditEvent event = new RouteAuditEvent(routeId, operationType, LocalDateTime.now(),
+                performedBy.getId(), description);
+        if (synchronous) {
+            write(List.of(event));
+        } else if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            // a rolled back change must not show up in the audit log
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    enqueue(event);
+                }
+            });
+        } else {
+            enqueue(event);
+        }
+    }
+
+    /**
+     * Get the state of the audit pipeline
+     *
+     * @return queue depth, written/dropped/failed/retried counters and the
+     *         last time rows were lost
+     */
+    public AuditStatsDTO getStats() {
+        return new AuditStatsDTO(synchronous, queue.size(), queueCapacity, written.get(), dropped.get(),
+                failed.get(), retried.get(), lastError, lastErrorAt);
+    }
+
+    private void enqueue(RouteAuditEvent event) {
+        if (!running || !queue.offer(event)) {
+            dropped.incrementAndGet();
+            reportLost(event, running ? "audit queue is full" : "audit writer is stopped");
+        }
+    }
+
+    private void drainLoop() {
+        List<RouteAuditEvent> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                RouteAuditEvent first = queue.poll(flushIntervalMs, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.currentTimeMillis() + flushIntervalMs;
+                while (batch.size() < batchSize && running) {
+                    queue.drainTo(batch, batchSize - batch.size());
+                    long wait = deadline - System.currentTimeMillis();
+                    if (batch.size() >= batchSize || wait <= 0) {
+                        break;
+                    }
+                    RouteAuditEvent next = queue.poll(wait, TimeUnit.MILLISECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                // shutting down: no more waiting, just fill the batch
+                queue.drainTo(batch, batchSize - batch.size());
+                writeWithRetries(batch);
+            } catch (InterruptedException e) {
+                // the shutdown timeout ran out, whatever is left is lost
+                queue.drainTo(batch);
+                batch.forEach(event -> lose(event, "audit writer interrupted at shutdown"));
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void writeWithRetries(List<RouteAuditEvent> batch) throws InterruptedException {
+        long backoff = retryBackoffMs;
+        for (int attempt = 1; attempt < maxWriteAttempts; attempt++) {
+            try {
+                write(batch);
+                return;
+            } catch (RuntimeException e) {
+                retried.incrementAndGet();
+                System.err.println("Failed to write " + batch.size() + " route audit rows (attempt " + attempt
+                        + "), retrying in " + backoff + " ms: " + e.getMessage());
+                Thread.sleep(backoff);
+                backoff = Math.min(backoff * 2, retryBackoffMaxMs);
+            }
+        }
+        try {
+            write(batch);
+        } catch (RuntimeException e) {
+            // last attempt: row by row, so one bad row does not take the rest with it
+            for (RouteAuditEvent event : batch) {
+                try {
+                    write(List.of(event));
+                } catch (RuntimeException rowError) {
+                    lose(event, rowError.getMessage());
+                }
+            }
+        }
+    }
+
+    private void lose(RouteAuditEvent event, String error) {
+        failed.incrementAndGet();
+        reportLost(event, error);
+    }
+
+    private void reportLost(RouteAuditEvent event, String error) {
+        lastError = error;
+        lastErrorAt = LocalDateTime.now();
+        // the whole row, so it can be restored from the log
+        System.err.println("ERROR: route audit row lost (" + error + "): route_id=" + event.getRouteId()
+                + ", operation_type=" + event.getOperationType() + ", timestamp=" + event.getTimestamp()
+                + ", performed_by_id=" + event.getPerformedById() + ", description=" + event.getDescription());
+    }
+
+    private void write(List<RouteAuditEvent> events) {
+        jdbcTemplate.batchUpdate(INSERT_SQL, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                RouteAuditEvent event = events.get(i);
+                ps.setInt(1, event.getRouteId());
+                ps.setString(2, event.getOperationType().name());
+                ps.setTimestamp(3, Timestamp.valueOf(event.getTimestamp()));
+                ps.setInt(4, event.getPerformedById());
+                ps.setString(5, event.getDescription());
+            }
+
+            @Override
+            public int getBatchSize() {
+                return events.size();
+            }
+        });
+        written.addAndGet(events.size());
+    }
+}
@@ -0,0 +1,99 @@
+package itmo.labs.service;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.sql.init.dependency.DependsOnDatabaseInitialization;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Maintains the monthly partitions of route_audit: creates the partitions of
+ * the coming months ahead of time, so rows never land in the default
+ * partition, and drops whole partitions that fell out of the retention
+ * window instead of deleting old rows one by one.
+ */
+@Service
+@DependsOnDatabaseInitialization
+// route_audit is only partitioned on PostgreSQL (schema-postgresql.sql)
+@ConditionalOnProperty(name = "spring.datasource.driver-class-name", havingValue = "org.postgresql.Driver", matchIfMissing = true)
+public class RouteAuditPartitionService {
+
+    private static final String PARTITION_PREFIX = "route_audit_";
+    private static final DateTimeFormatter PARTITION_SUFFIX = DateTimeFormatter.ofPattern("yyyy_MM");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int partitionsAhead;
+    private final int retentionMonths;
+
+    public RouteAuditPartitionService(JdbcTemplate jdbcTemplate,
+            @Value("${audit.partitions-ahead:3}") int partitionsAhead,
+            @Value("${audit.retention-months:12}") int retentionMonths) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.partitionsAhead = partitionsAhead;
+        this.retentionMonths = retentionMonths;
+    }
+
+    @PostConstruct
+    @Scheduled(cron = "${audit.partition-maintenance-cron:0 0 3 * * *}")
+    public void maintainPartitions() {
+        YearMonth current = YearMonth.now();
+        for (int i = 0; i <= partitionsAhead; i++) {
+            createPartition(current.plusMonths(i));
+        }
+        dropPartitionsBefore(current.minusMonths(retentionMonths));
+    }
+
+    private void createPartition(YearMonth month) {
+        LocalDate from = month.atDay(1);
+        LocalDate to = month.plusMonths(1).atDay(1);
+        try {
+            jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + partitionName(month)
+                    + " PARTITION OF route_audit FOR VALUES FROM ('" + from + "') TO ('" + to + "')");
+        } catch (DataAccessException e) {
+            // e.g. the default partition already holds rows of this month, they stay there
+            System.err.println("Failed to create route_audit partition for " + month + ": " + e.getMessage());
+        }
+    }
+
+    private void dropPartitionsBefore(YearMonth oldestKept) {
+        List<String> partitions = jdbcTemplate.queryForList(
+                "SELECT c.relname FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid "
+                        + "WHERE i.inhparent = 'route_audit'::regclass",
+                String.class);
+        for (String partition : partitions) {
+            YearMonth month = partitionMonth(partition);
+            if (month != null && month.isBefore(oldestKept)) {
+                jdbcTemplate.execute("DROP TABLE " + partition);
+            }
+        }
+    }
+
+    private static String partitionName(YearMonth month) {
+        return PARTITION_PREFIX + month.format(PARTITION_SUFFIX);
+    }
+
+    /**
+     * @return the month of a monthly partition, null for any other partition
+     *         (e.g. the default one)
+     */
+    private static YearMonth partitionMonth(String partition) {
+        if (!partition.startsWith(PARTITION_PREFIX)) {
+            return null;
+        }
+        try {
+            return YearMonth.parse(partition.substring(PARTITION_PREFIX.length()), PARTITION_SUFFIX);
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+}
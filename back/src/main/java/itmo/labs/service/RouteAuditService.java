@@ -0,0 +1,73 @@
+package itmo.labs.service;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import itmo.labs.dto.PageDTO;
+import itmo.labs.dto.RouteAuditDTO;
+import itmo.labs.model.OperationType;
+import itmo.labs.model.RouteAudit;
+import itmo.labs.repository.RouteAuditRepository;
+import itmo.labs.utils.KeysetPaging;
+
+@Service
+public class RouteAuditService {
+
+    private static final Set<String> SORTABLE_FIELDS = Set.of("id", "timestamp");
+
+    private final RouteAuditRepository routeAuditRepository;
+
+    public RouteAuditService(RouteAuditRepository routeAuditRepository) {
+        this.routeAuditRepository = routeAuditRepository;
+    }
+
+    /**
+     * Get a page of audit records matching the filters. A time range lets
+     * PostgreSQL skip the monthly partitions outside of it.
+     *
+     * @param routeId       only records of this Route, may be null
+     * @param userId        only records of changes by this user, may be null
+     * @param operationType only records of this kind of change, may be null
+     * @param from          only records at or after this time, may be null
+     * @param to            only records before this time, may be null
+     * @param after         the cursor returned with the previous page, may be null
+     * @param size          the page size, capped at {@link KeysetPaging#MAX_PAGE_SIZE}
+     * @param sortBy        "timestamp" or "id"
+     * @return page of audit records
+     */
+    @Transactional(readOnly = true)
+    public PageDTO<RouteAuditDTO> getAudit(Integer routeId, Integer userId, OperationType operationType,
+            LocalDateTime from, LocalDateTime to, String after, Integer size, String sortBy) {
+        Sort sort = KeysetPaging.sort(sortBy, SORTABLE_FIELDS);
+        int pageSize = KeysetPaging.pageSize(size);
+        Specification<RouteAudit> filter = KeysetPaging.<RouteAudit>after(sortBy, after)
+                .and((root, query, cb) -> {
+                    root.fetch("performedBy");
+                    return null;
+                });
+        if (routeId != null) {
+            filter = filter.and((root, query, cb) -> cb.equal(root.get("routeId"), routeId));
+        }
+        if (userId != null) {
+            filter = filter.and((root, query, cb) -> cb.equal(root.get("performedBy").get("id"), userId));
+        }
+        if (operationType != null) {
+            filter = filter.and((root, query, cb) -> cb.equal(root.get("operationType"), operationType));
+        }
+        if (from != null) {
+            filter = filter.and((root, query, cb) -> cb.greaterThanOrEqualTo(root.get("timestamp"), from));
+        }
+        if (to != null) {
+            filter = filter.and((root, query, cb) -> cb.lessThan(root.get("timestamp"), to));
+        }
+        List<RouteAudit> rows = routeAuditRepository.findBy(filter,
+                query -> query.sortBy(sort).limit(pageSize + 1).all());
+        return KeysetPaging.toPage(rows, pageSize, sortBy).map(RouteAuditDTO::new);
+    }
+}
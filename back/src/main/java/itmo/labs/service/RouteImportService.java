@@ -1,15 +1,30 @@
 package itmo.labs.service;
 
+import io.minio.GetObjectArgs;
 import io.minio.MinioClient;
 import io.minio.PutObjectArgs;
 import io.minio.errors.MinioException;
+import java.io.IOException;
 import java.io.InputStream;
-import java.util.HashSet;
+import java.io.OutputStream;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
 import java.util.List;
-import java.util.Set;
-import java.util.stream.Collectors;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntConsumer;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Isolation;
@@ -19,40 +34,95 @@ import org.springframework.web.multipart.MultipartFile;
 import itmo.labs.dto.CoordinatesDTO;
 import itmo.labs.dto.ImportHistoryUpdateDTO;
 import itmo.labs.dto.LocationDTO;
+import itmo.labs.dto.PageDTO;
 import itmo.labs.dto.RouteDTO;
-import itmo.labs.dto.YamlUploadDTO;
 import itmo.labs.model.ImportHistory;
+import itmo.labs.model.ImportHistory.ImportMode;
+import itmo.labs.model.ImportHistory.ImportStatus;
 import itmo.labs.model.Role;
 import itmo.labs.model.User;
 import itmo.labs.repository.ImportHistoryRepository;
+import itmo.labs.utils.ImportCompression;
+import itmo.labs.utils.KeysetPaging;
+import itmo.labs.utils.StreamTee;
+import itmo.labs.utils.RouteImportFormat;
 import itmo.labs.utils.YamlRouteParser;
+import jakarta.annotation.PreDestroy;
 import java.time.LocalDateTime;
 
 @Service
 public class RouteImportService {
 
+    static final String BUCKET = "ta4ilka-drive";
+    // streamed uploads have no known size, MinIO buffers one part of this size
+    private static final long UPLOAD_PART_SIZE = 10 * 1024 * 1024;
+    // a multiple of hibernate.jdbc.batch_size
+    private static final int ROUTE_CHUNK_SIZE = 500;
+
     private final RouteService routeService;
     private final ImportHistoryRepository importHistoryRepository;
     private final UserService userService;
     private final CoordinatesService coordinatesService;
     private final LocationService locationService;
     private final MinioClient minioClient;
+    private final DatasetVersionService datasetVersionService;
+    private final BulkRouteImporter bulkRouteImporter;
+    private final ImportValidator importValidator;
+    private final List<RouteImportFormat> importFormats;
+    private final PresignedUrlCache presignedUrlCache;
+    private final StorageCleanupService storageCleanupService;
+    private final long bulkThresholdBytes;
+    private final long maxDecompressionRatio;
+    private final long duplicateWindowMinutes;
+    private final ExecutorService uploadExecutor;
 
     @Autowired
     public RouteImportService(RouteService routeService,
             ImportHistoryRepository importHistoryRepository, UserService userService,
             CoordinatesService coordinatesService, LocationService locationService,
-            MinioClient minioClient) {
+            MinioClient minioClient, DatasetVersionService datasetVersionService,
+            BulkRouteImporter bulkRouteImporter, ImportValidator importValidator,
+            List<RouteImportFormat> importFormats, PresignedUrlCache presignedUrlCache,
+            StorageCleanupService storageCleanupService,
+            @Value("${import.bulk-threshold-bytes:52428800}") long bulkThresholdBytes,
+            @Value("${import.max-decompression-ratio:100}") long maxDecompressionRatio,
+            @Value("${import.duplicate-window-minutes:10}") long duplicateWindowMinutes) {
         this.routeService = routeService;
         this.importHistoryRepository = importHistoryRepository;
         this.userService = userService;
         this.coordinatesService = coordinatesService;
         this.locationService = locationService;
         this.minioClient = minioClient;
+        this.datasetVersionService = datasetVersionService;
+        this.bulkRouteImporter = bulkRouteImporter;
+        this.importValidator = importValidator;
+        this.importFormats = importFormats;
+        this.presignedUrlCache = presignedUrlCache;
+        this.storageCleanupService = storageCleanupService;
+        this.bulkThresholdBytes = bulkThresholdBytes;
+        this.maxDecompressionRatio = maxDecompressionRatio;
+        this.duplicateWindowMinutes = duplicateWindowMinutes;
+        AtomicInteger threads = new AtomicInteger();
+        this.uploadExecutor = Executors.newCachedThreadPool(
+                task -> new Thread(task, "import-upload-" + threads.incrementAndGet()));
+    }
+
+    @PreDestroy
+    public void stop() {
+        uploadExecutor.shutdown();
     }
 
-    @Transactional(isolation = Isolation.SERIALIZABLE)
-    public void importRoutes(MultipartFile file, ImportHistory history) throws Exception {
+    /**
+     * Store the file in MinIO and queue its import. The import itself is run
+     * by {@link ImportJobWorker} on whichever node claims it
+     *
+     * @param file    file with routes in one of the import formats
+     * @param history the import record, saved as a PENDING job
+     * @param mode    how to import the file, null to choose by its size
+     * @param force   import the file even if it was imported recently
+     */
+    public ImportHistory submitImport(MultipartFile file, ImportHistory history, ImportMode mode, boolean force)
+            throws Exception {
         String currentUsername = SecurityContextHolder.getContext().getAuthentication().getName();
         User currentUser;
         try {
@@ -63,125 +133,444 @@ public class RouteImportService {
 
         history.setTimestamp(LocalDateTime.now());
         history.setPerformedBy(currentUser.getUsername());
+        history.setCompression(ImportCompression.detect(file.getOriginalFilename(), null));
+        history.setFormat(resolveFormat(file.getOriginalFilename(), file.getContentType()).getName());
 
         // Generate a unique filename, e.g., using UUID
         String userFileName = currentUser.getUsername() + "_" + System.currentTimeMillis() + "/"
                 + file.getOriginalFilename();
 
+        String contentHash;
         try {
             // Upload file to MinIO, phase 1
-            try (InputStream inputStream = file.getInputStream()) {
+            try (DigestInputStream inputStream = new DigestInputStream(file.getInputStream(), sha256())) {
                 minioClient.putObject(
                         PutObjectArgs.builder()
-                                .bucket("ta4ilka-drive")
+                                .bucket(BUCKET)
                                 .object(userFileName)
                                 .stream(inputStream, file.getSize(), -1)
                                 .contentType(file.getContentType())
                                 .build());
+                contentHash = HexFormat.of().formatHex(inputStream.getMessageDigest().digest());
             }
-
-            // Set the file URL in history
-            String fileUrl = minioClient.getPresignedObjectUrl(
-                    io.minio.GetPresignedObjectUrlArgs.builder()
-                            .method(io.minio.http.Method.GET)
-                            .bucket("ta4ilka-drive")
-                            .object(userFileName)
-                            .build());
-            history.setFileUrl(fileUrl);
         } catch (MinioException e) {
             throw new Exception("Error uploading file to MinIO: " + e.getMessage());
         }
 
-        importHistoryRepository.save(history);
-        // phase 2: import, save to db
-        try (InputStream inputStream = file.getInputStream()) {
-            YamlUploadDTO importDTO = YamlRouteParser.parseYamlFile(inputStream);
-            int totalImported = 1;
-
-            // Import Coordinates
-            try {
-                if (importDTO.getCoordinates() != null) {
-                    for (CoordinatesDTO coord : importDTO.getCoordinates()) {
-                        coordinatesService.saveCoordinates(RouteDTO.convertToEntity(coord));
-                        totalImported++;
-                    }
-                }
-            } catch (Exception e) {
-                throw new IllegalArgumentException(
-                        "Error importing coordinates on number " + totalImported + ": " + e.getMessage());
+        return queueImport(history, userFileName, file.getSize(), contentHash, mode, force);
+    }
+
+    /**
+     * Store a raw upload in MinIO and queue its import, reading the request
+     * body once: while the body is sent to MinIO its parser checks it on
+     * another thread, so a malformed file is rejected before it is queued and
+     * nothing is spooled to disk
+     *
+     * @param body        the request body
+     * @param filename    the original file name
+     * @param contentType     the content type of the body
+     * @param contentEncoding the Content-Encoding of the body, may be null;
+     *                        a compressed body is stored compressed
+     * @param history         the import record, saved as a PENDING job
+     * @param mode            how to import the file, null to choose by its size
+     * @param force           import the file even if it was imported recently
+     */
+    public ImportHistory submitImportStream(InputStream body, String filename, String contentType,
+            String contentEncoding, ImportHistory history, ImportMode mode, boolean force) throws Exception {
+        String currentUsername = SecurityContextHolder.getContext().getAuthentication().getName();
+        User currentUser;
+        try {
+            currentUser = userService.getUserByUsername(currentUsername);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("User not found: " + currentUsername);
+        }
+
+        history.setTimestamp(LocalDateTime.now());
+        history.setPerformedBy(currentUser.getUsername());
+        ImportCompression compression = ImportCompression.detect(filename, contentEncoding);
+        history.setCompression(compression);
+        RouteImportFormat format = resolveFormat(filename, contentType);
+        history.setFormat(format.getName());
+        String userFileName = currentUser.getUsername() + "_" + System.currentTimeMillis() + "/" + filename;
+
+        ImportValidator.Report report = importValidator.newReport();
+        DigestInputStream digestBody = new DigestInputStream(body, sha256());
+        long size;
+        try {
+            size = StreamTee.tee(digestBody, uploadExecutor,
+                    input -> minioClient.putObject(
+                            PutObjectArgs.builder()
+                                    .bucket(BUCKET)
+                                    .object(userFileName)
+                                    .stream(input, -1, UPLOAD_PART_SIZE)
+                                    .contentType(contentType)
+                                    .build()),
+                    input -> format.parse(compression.decompress(input, maxDecompressionRatio),
+                            new PrecheckHandler(report)));
+            if (report.hasErrors()) {
+                throw new IllegalArgumentException(report.toMessage());
             }
+        } catch (Exception e) {
+            storageCleanupService.schedule("rejected-upload", List.of(userFileName));
+            if (e instanceof MinioException) {
+                throw new Exception("Error uploading file to MinIO: " + e.getMessage());
+            }
+            throw e;
+        }
 
-            // Import Locations
-            try {
-                if (importDTO.getLocations() != null) {
-                    for (LocationDTO loc : importDTO.getLocations()) {
-                        locationService.saveLocation(RouteDTO.convertToEntity(loc));
-                        totalImported++;
-                    }
-                }
-            } catch (Exception e) {
-                throw new IllegalArgumentException(
-                        "Error importing locations on number " + totalImported + ": " + e.getMessage());
+        String contentHash = HexFormat.of().formatHex(digestBody.getMessageDigest().digest());
+        return queueImport(history, userFileName, size, contentHash, mode, force);
+    }
+
+    /**
+     * Find the format of an import file, by the extension of its name first
+     * (after a compression extension such as .gz) and by its content type
+     * otherwise
+     *
+     * @param filename    original name of the file
+     * @param contentType content type of the upload, may be null
+     */
+    public RouteImportFormat resolveFormat(String filename, String contentType) {
+        String contentName = ImportCompression.detect(filename, null).stripExtension(filename);
+        return importFormats.stream()
+                .filter(format -> format.supports(contentName, null))
+                .findFirst()
+                .or(() -> importFormats.stream().filter(format -> format.supports(null, contentType)).findFirst())
+                .orElseThrow(() -> new IllegalArgumentException("Unsupported import file format: " + filename
+                        + (contentType != null ? " (" + contentType + ")" : "")));
+    }
+
+    /**
+     * Find the format an import was queued with
+     */
+    public RouteImportFormat formatOf(ImportHistory history) {
+        String name = history.getFormat() != null ? history.getFormat() : YamlRouteParser.NAME;
+        return importFormats.stream()
+                .filter(format -> format.getName().equals(name))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("Unsupported import file format: " + name));
+    }
+
+    /**
+     * Find an earlier import of the same content by the current user that is
+     * queued or running, or that succeeded within
+     * import.duplicate-window-minutes, so a file sent twice by accident is
+     * not imported twice. Older imports do not count, the routes may have
+     * been deleted since
+     *
+     * @param contentHash hex SHA-256 of the file
+     */
+    public Optional<ImportHistory> findDuplicate(String contentHash) {
+        String currentUsername = SecurityContextHolder.getContext().getAuthentication().getName();
+        String hash = contentHash.toLowerCase(Locale.ROOT);
+        Optional<ImportHistory> inFlight = importHistoryRepository
+                .findFirstByPerformedByAndContentHashAndStatusInOrderByIdDesc(currentUsername, hash,
+                        List.of(ImportStatus.PENDING, ImportStatus.RUNNING));
+        if (inFlight.isPresent()) {
+            return inFlight;
+        }
+        return importHistoryRepository.findFirstByPerformedByAndContentHashAndStatusAndTimestampAfterOrderByIdDesc(
+                currentUsername, hash, ImportStatus.SUCCESS,
+                LocalDateTime.now().minusMinutes(duplicateWindowMinutes));
+    }
+
+    /**
+     * Queue the import of a file already stored in MinIO
+     *
+     * @param history     the import record with its user and timestamp set,
+     *                    saved as a PENDING job
+     * @param objectKey   the stored file
+     * @param size        size of the file in bytes
+     * @param contentHash hex SHA-256 of the file
+     * @param mode        how to import the file; null chooses BULK for files
+     *                    of at least import.bulk-threshold-bytes and ENTITY
+     *                    otherwise
+     * @param force       queue the file even if it was imported recently
+     * @return the queued import, or the earlier import of the same content,
+     *         in which case the stored file is scheduled for removal
+     */
+    public ImportHistory queueImport(ImportHistory history, String objectKey, long size, String contentHash,
+            ImportMode mode, boolean force) {
+        Optional<ImportHistory> duplicate = force ? Optional.empty() : findDuplicate(contentHash);
+        if (duplicate.isPresent()) {
+            storageCleanupService.schedule("duplicate-upload", List.of(objectKey));
+            return duplicate.get();
+        }
+        history.setObjectKey(objectKey);
+        history.setFileSize(size);
+        history.setContentHash(contentHash);
+        if (mode == null) {
+            mode = size >= bulkThresholdBytes ? ImportMode.BULK : ImportMode.ENTITY;
+        }
+        history.setMode(mode);
+        history.setStatus(ImportStatus.PENDING);
+        return importHistoryRepository.save(history);
+    }
+
+    /**
+     * Compute the SHA-256 of a file stored in MinIO
+     *
+     * @param objectKey the stored file
+     * @return hex SHA-256 of the file
+     */
+    public String hashStoredFile(String objectKey) throws Exception {
+        try (DigestInputStream input = new DigestInputStream(minioClient.getObject(
+                GetObjectArgs.builder()
+                        .bucket(BUCKET)
+                        .object(objectKey)
+                        .build()), sha256())) {
+            input.transferTo(OutputStream.nullOutputStream());
+            return HexFormat.of().formatHex(input.getMessageDigest().digest());
+        }
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            // every Java platform has SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Open the stored file of an import
+     *
+     * @param history the import
+     * @return the file content, to be closed by the caller
+     */
+    public InputStream openImportFile(ImportHistory history) throws Exception {
+        if (history.getObjectKey() == null) {
+            throw new IllegalArgumentException("Import file is not available");
+        }
+        return minioClient.getObject(GetObjectArgs.builder()
+                .bucket(BUCKET)
+                .object(history.getObjectKey())
+                .build());
+    }
+
+    /**
+     * Queue a CHUNKED import that stopped after committing chunks again. The
+     * new attempt continues after its checkpoint. Only its user may resume it
+     *
+     * @param id the import
+     * @return the queued import
+     */
+    @Transactional
+    public ImportHistory resumeImport(Long id) {
+        String currentUsername = SecurityContextHolder.getContext().getAuthentication().getName();
+        ImportHistory history = importHistoryRepository.findById(id)
+                .filter(found -> found.getPerformedBy().equals(currentUsername))
+                .orElseThrow(() -> new IllegalArgumentException("Import not found: " + id));
+        if (history.getMode() != ImportMode.CHUNKED || history.getStatus() != ImportStatus.PARTIAL
+                || history.getCheckpoint() == 0 || history.getObjectKey() == null) {
+            throw new IllegalStateException("Import " + id + " has no committed chunks to continue after");
+        }
+        history.setStatus(ImportStatus.PENDING);
+        history.setErrorMessage(null);
+        history.setHeartbeatAt(null);
+        return importHistoryRepository.save(history);
+    }
+
+    /**
+     * Get a download URL of the file or the error report of an import. Only
+     * its user and admins may download them
+     *
+     * @param id          the import
+     * @param errorReport the error report instead of the file
+     */
+    @Transactional(readOnly = true)
+    public String getDownloadUrl(Long id, boolean errorReport) throws Exception {
+        String currentUsername = SecurityContextHolder.getContext().getAuthentication().getName();
+        User currentUser;
+        try {
+            currentUser = userService.getUserByUsername(currentUsername);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("User not found: " + currentUsername);
+        }
+        ImportHistory history = importHistoryRepository.findById(id)
+                .filter(found -> found.getPerformedBy().equals(currentUsername)
+                        || currentUser.getRoles().contains(Role.ADMIN))
+                .orElseThrow(() -> new IllegalArgumentException("Import not found: " + id));
+        String objectKey = errorReport ? history.getErrorReportKey() : history.getObjectKey();
+        if (objectKey == null) {
+            throw new IllegalArgumentException("Import " + id + " has no " + (errorReport ? "error report" : "file"));
+        }
+        return presignedUrlCache.get(objectKey);
+    }
+
+    /**
+     * Import the routes of a claimed ENTITY or BULK import job, CHUNKED ones
+     * are run by {@link ChunkedRouteImporter}. The whole file is one
+     * transaction: a failed or interrupted import leaves nothing behind and is
+     * run again from the start when the job is claimed again
+     *
+     * @param history  the import, claimed by the calling worker
+     * @param input    the import file
+     * @param progress called with the number of entries read so far
+     */
+    @Transactional(isolation = Isolation.READ_COMMITTED)
+    public void importRoutes(ImportHistory history, InputStream input, IntConsumer progress) {
+        User currentUser;
+        try {
+            currentUser = userService.getUserByUsername(history.getPerformedBy());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("User not found: " + history.getPerformedBy());
+        }
+
+        input = decompress(history, input);
+
+        // phase 2: import, save to db while the file is parsed
+        int totalImported;
+        if (history.getMode() == ImportMode.BULK) {
+            totalImported = bulkRouteImporter.importFile(history.getId(), currentUser, formatOf(history), input,
+                    progress);
+        } else {
+            ImportHandler handler = new ImportHandler(currentUser, progress);
+            formatOf(history).parse(input, handler);
+            handler.finish();
+            totalImported = handler.totalImported;
+        }
+
+        // a worker whose lease ran out must not commit over the one that took the job over
+        Integer attempts = importHistoryRepository.lockAttempts(history.getId());
+        if (attempts == null || attempts != history.getAttempts()) {
+            throw new IllegalStateException("Import " + history.getId() + " was taken over by another worker");
+        }
+        // Phase 3, OK
+        history.setRecordsImported(totalImported);
+        history.setStatus(ImportStatus.SUCCESS);
+        datasetVersionService.bump();
+        importHistoryRepository.save(history);
+    }
+
+    /**
+     * Decompress a stored import file while it is read
+     *
+     * @param history the import
+     * @param input   the file as stored
+     */
+    public InputStream decompress(ImportHistory history, InputStream input) {
+        ImportCompression compression = history.getCompression() != null ? history.getCompression()
+                : ImportCompression.NONE;
+        try {
+            return compression.decompress(input, maxDecompressionRatio);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Error decompressing import file: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Checks the Bean Validation constraints of entries while an upload is
+     * streamed, before anything touches the database
+     */
+    private class PrecheckHandler implements RouteImportFormat.Handler {
+        private final ImportValidator.Report report;
+        private int entriesRead;
+
+        PrecheckHandler(ImportValidator.Report report) {
+            this.report = report;
+        }
+
+        @Override
+        public void coordinates(CoordinatesDTO coordinates) {
+            importValidator.validateEntry(++entriesRead, coordinates, report);
+        }
+
+        @Override
+        public void location(LocationDTO location) {
+            importValidator.validateEntry(++entriesRead, location, report);
+        }
+
+        @Override
+        public void route(RouteDTO route) {
+            importValidator.validateEntry(++entriesRead, route, report);
+        }
+    }
+
+    /**
+     * Saves the entries of an import file as the parser reads them. Routes are
+     * validated and created in chunks, so their inserts are batched and the
+     * persistence context does not grow with the file. After the first invalid
+     * entry nothing more is saved, but the rest of the file is still validated
+     * so that all errors end up in one report
+     */
+    private class ImportHandler implements RouteImportFormat.Handler {
+        private final User currentUser;
+        private final IntConsumer progress;
+        private final ImportValidator.Report report = importValidator.newReport();
+        private final List<RouteDTO> pendingRoutes = new ArrayList<>();
+        private final List<Integer> pendingEntries = new ArrayList<>();
+        private int totalImported;
+        private int entriesRead;
+
+        ImportHandler(User currentUser, IntConsumer progress) {
+            this.currentUser = currentUser;
+            this.progress = progress;
+        }
+
+        @Override
+        public void coordinates(CoordinatesDTO coord) {
+            importValidator.validateEntry(++entriesRead, coord, report);
+            if (!report.hasErrors()) {
+                coordinatesService.saveCoordinates(RouteDTO.convertToEntity(coord));
+                totalImported++;
             }
+            progress.accept(entriesRead);
+        }
 
-            // Validate and Import Routes
-            if (importDTO.getRoutes() != null) {
-                Set<String> names = new HashSet<>();
-                for (RouteDTO dto : importDTO.getRoutes()) {
-                    if (!names.add(dto.getName())) {
-                        throw new IllegalArgumentException(
-                                "Duplicate route name found in import file: " + dto.getName());
-                    }
-                }
+        @Override
+        public void location(LocationDTO loc) {
+            importValidator.validateEntry(++entriesRead, loc, report);
+            if (!report.hasErrors()) {
+                locationService.saveLocation(RouteDTO.convertToEntity(loc));
+                totalImported++;
+            }
+            progress.accept(entriesRead);
+        }
 
-                // Validate coordinates
-                for (RouteDTO dto : importDTO.getRoutes()) {
-                    if (dto.getCoordinates().getX() < -180 || dto.getCoordinates().getX() > 180) {
-                        throw new IllegalArgumentException("Invalid X (latitude) for route: " + dto.getName());
-                    }
-                    if (dto.getCoordinates().getY() < -90 || dto.getCoordinates().getY() > 90) {
-                        throw new IllegalArgumentException("Invalid Y (longitude) for route: " + dto.getName());
-                    }
-                }
+        @Override
+        public void route(RouteDTO dto) {
+            dto.setCreatedById(currentUser.getId());
+            dto.setCreatedByUsername(currentUser.getUsername());
+            pendingRoutes.add(dto);
+            pendingEntries.add(++entriesRead);
+            if (pendingRoutes.size() >= ROUTE_CHUNK_SIZE) {
+                flushRoutes();
+            }
+            progress.accept(entriesRead);
+        }
 
-                // Import Routes
-                for (RouteDTO dto : importDTO.getRoutes()) {
-                    dto.setCreatedById(currentUser.getId());
-                    dto.setCreatedByUsername(currentUser.getUsername());
-                    try {
-                        routeService.createRoute(dto);
-                    } catch (Exception e) {
-                        throw new IllegalArgumentException(
-                                "Error importing routes on number " + totalImported + ": " + e.getMessage());
-                    }
-                    totalImported++;
+        void flushRoutes() {
+            if (pendingRoutes.isEmpty()) {
+                return;
+            }
+            importValidator.validateRoutes(pendingRoutes, pendingEntries, report);
+            if (!report.hasErrors()) {
+                try {
+                    totalImported += routeService.createRoutes(pendingRoutes);
+                } catch (DataIntegrityViolationException e) {
+                    // a route with one of the names was created after the validation
+                    throw new IllegalArgumentException("Error importing routes: route name already exists near number "
+                            + pendingEntries.get(0));
+                } catch (Exception e) {
+                    throw new IllegalArgumentException("Error importing routes: " + e.getMessage());
                 }
             }
-            // Phase 3, OK
-            history.setRecordsImported(totalImported);
-            importHistoryRepository.save(history);
+            pendingRoutes.clear();
+            pendingEntries.clear();
+        }
 
-        } catch (Exception e) {
-            // Phase 3, Something wrong
-            // we dont need to work with db, because db will rollback itself
-            history.setFileUrl(null);
-            try {
-                minioClient.removeObject(
-                        io.minio.RemoveObjectArgs.builder()
-                                .bucket("ta4ilka-drive")
-                                .object(userFileName)
-                                .build());
-                minioClient.removeObject(io.minio.RemoveObjectArgs.builder().bucket("ta4ilka-drive")
-                        .object(userFileName.substring(0, userFileName.lastIndexOf('/'))).build());
-            } catch (Exception ex) {
-                // Log this exception
-                System.err.println("Failed to delete file from MinIO after rollback: " + ex.getMessage());
+        void finish() {
+            flushRoutes();
+            if (report.hasErrors()) {
+                throw new IllegalArgumentException(report.toMessage());
             }
-            throw e;
         }
     }
 
-    public List<ImportHistoryUpdateDTO> getImportHistory() {
+    @Transactional(readOnly = true)
+    public PageDTO<ImportHistoryUpdateDTO> getImportHistory(String after, Integer size) {
         String currentUsername = SecurityContextHolder.getContext().getAuthentication().getName();
         User currentUser;
         try {
@@ -190,16 +579,13 @@ public class RouteImportService {
             throw new IllegalArgumentException("User not found: " + currentUsername);
         }
 
-        List<ImportHistory> histories;
-
-        if (currentUser.getRoles().contains(Role.ADMIN)) {
-            histories = importHistoryRepository.findAll();
-        } else {
-            histories = importHistoryRepository.findByPerformedBy(currentUsername);
+        Specification<ImportHistory> filter = KeysetPaging.after("id", after);
+        if (!currentUser.getRoles().contains(Role.ADMIN)) {
+            filter = filter.and((root, query, cb) -> cb.equal(root.get("performedBy"), currentUsername));
         }
-        List<ImportHistoryUpdateDTO> dtoList = histories.stream()
-                .map(ImportHistoryUpdateDTO::new)
-                .collect(Collectors.toList());
-        return dtoList;
+        int pageSize = KeysetPaging.pageSize(size);
+        List<ImportHistory> histories = importHistoryRepository.findBy(filter,
+                query -> query.sortBy(Sort.by("id")).limit(pageSize + 1).all());
+        return KeysetPaging.toPage(histories, pageSize, "id").map(ImportHistoryUpdateDTO::new);
     }
 }
\ No newline at end of file
@@ -0,0 +1,33 @@
+package itmo.labs.service;
+
+import java.util.List;
+
+import itmo.labs.model.Route;
+
+/**
+ * Case-insensitive substring search over route names, most relevant first.
+ */
+public interface RouteNameSearch {
+
+    /**
+     * Find routes whose name contains the substring
+     *
+     * @param substring the substring to search for
+     * @param page      the page number, starting from 0
+     * @param size      the page size
+     * @return page of matching routes ordered by relevance, then by ID
+     */
+    List<Route> search(String substring, int page, int size);
+
+    /**
+     * Build a LIKE pattern matching names that contain the substring, with
+     * {@code !} as the escape character
+     *
+     * @param substring the substring to search for
+     * @return the pattern
+     */
+    static String containsPattern(String substring) {
+        String escaped = substring.replace("!", "!!").replace("%", "!%").replace("_", "!_");
+        return "%" + escaped + "%";
+    }
+}
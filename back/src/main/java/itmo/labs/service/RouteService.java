@@ -1,50 +1,73 @@
 package itmo.labs.service;
 
 import itmo.labs.controller.RouteWebSocketController;
+import itmo.labs.dto.PageDTO;
+import itmo.labs.dto.RouteBulkDeleteDTO;
 import itmo.labs.dto.RouteDTO;
+import itmo.labs.dto.RouteFilterDTO;
 import itmo.labs.dto.RouteUpdateDTO;
 import itmo.labs.model.*;
 import itmo.labs.repository.CoordinatesRepository;
 import itmo.labs.repository.LocationRepository;
 import itmo.labs.repository.RouteAuditRepository;
 import itmo.labs.repository.RouteRepository;
+import itmo.labs.repository.RouteSpecifications;
+import itmo.labs.utils.KeysetPaging;
+
+import jakarta.persistence.EntityManager;
 
-import org.postgresql.util.PSQLException;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.retry.annotation.Backoff;
-import org.springframework.retry.annotation.Retryable;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Isolation;
 import org.springframework.transaction.annotation.Transactional;
 import java.time.LocalDateTime;
-import java.util.Comparator;
 import java.util.List;
 import java.util.Optional;
-import java.util.stream.Collectors;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 @Service
 public class RouteService {
 
+    private static final Set<String> SORTABLE_FIELDS = Set.of("id", "name", "rating", "creationDate");
+    private static final Set<String> BETWEEN_LOCATIONS_SORT_FIELDS = Set.of("distance", "rating", "name");
+    private static final int STREAM_CLEAR_INTERVAL = 500;
+
     private final RouteRepository routeRepository;
     private final LocationRepository locationRepository;
     private final CoordinatesRepository coordinatesRepository;
     private final UserService userService;
     private final RouteAuditRepository routeAuditRepository;
     private final RouteWebSocketController routeWebSocketController;
+    private final RouteNameSearch routeNameSearch;
+    private final EntityManager entityManager;
+    private final DatasetVersionService datasetVersionService;
+    private final RouteAuditLog routeAuditLog;
 
     @Autowired
     public RouteService(RouteRepository routeRepository,
             LocationRepository locationRepository,
             CoordinatesRepository coordinatesRepository,
             UserService userService,
-            RouteAuditRepository routeAuditRepository, RouteWebSocketController routeWebSocketController){
+            RouteAuditRepository routeAuditRepository, RouteWebSocketController routeWebSocketController,
+            RouteNameSearch routeNameSearch, EntityManager entityManager,
+            DatasetVersionService datasetVersionService, RouteAuditLog routeAuditLog){
         this.routeRepository = routeRepository;
         this.locationRepository = locationRepository;
         this.coordinatesRepository = coordinatesRepository;
         this.userService = userService;
         this.routeAuditRepository = routeAuditRepository;
         this.routeWebSocketController = routeWebSocketController;
+        this.routeNameSearch = routeNameSearch;
+        this.entityManager = entityManager;
+        this.datasetVersionService = datasetVersionService;
+        this.routeAuditLog = routeAuditLog;
     }
 
     /**
@@ -53,16 +76,8 @@ public class RouteService {
      * @param route the Route entity
      * @return the created Route
      */
-        @Retryable(
-        value = { PSQLException.class },
-        maxAttempts = 4,
-        backoff = @Backoff(delay = 100, multiplier = 2)
-    )
-    @Transactional(isolation = Isolation.SERIALIZABLE)
+    @Transactional(isolation = Isolation.READ_COMMITTED)
     public Route createRoute(RouteDTO routeDTO) {
-        if (routeRepository.existsByNameIgnoreCase(routeDTO.getName())) {
-            throw new IllegalArgumentException("Route with name '" + routeDTO.getName() + "' already exists");
-        }
         // Retrieve the currently authenticated user
         String currentUsername = SecurityContextHolder.getContext().getAuthentication().getName();
         User currentUser;
@@ -75,20 +90,56 @@ public class RouteService {
         route.setCreatedBy(currentUser);
         route.setCreationDate(LocalDateTime.now());
 
-        Route createdRoute = routeRepository.save(route);
+        // name uniqueness is enforced by the unique index on lower(name)
+        Route createdRoute = routeRepository.saveAndFlush(route);
 
         // Create audit log
-        RouteAudit audit = new RouteAudit();
-        audit.setRoute(createdRoute);
-        audit.setOperationType(OperationType.CREATE);
-        audit.setTimestamp(LocalDateTime.now());
-        audit.setPerformedBy(currentUser);
-        audit.setDescription("Route created with ID: " + createdRoute.getId());
+        routeAuditLog.record(createdRoute.getId(), OperationType.CREATE, currentUser,
+                "Route created with ID: " + createdRoute.getId());
+        datasetVersionService.bump();
         routeWebSocketController
                 .notifyRouteChange(new RouteUpdateDTO(OperationType.CREATE, createdRoute.getId(), routeDTO));
         return createdRoute;
     }
 
+    /**
+     * Create the Routes of an import in the caller's transaction. Unlike
+     * {@link #createRoute(RouteDTO)} nothing is flushed per Route, so the
+     * inserts reach the database in JDBC batches; a name that is already taken
+     * fails the unique index when the batch is flushed. The persistence context
+     * is flushed and cleared before returning, so large imports pass their
+     * Routes in chunks. The caller advances the dataset version
+     *
+     * @param routeDTOs the Routes to create
+     * @return the number of created Routes
+     */
+    @Transactional
+    public int createRoutes(List<RouteDTO> routeDTOs) {
+        String currentUsername = SecurityContextHolder.getContext().getAuthentication().getName();
+        User currentUser;
+        try {
+            currentUser = userService.getUserByUsername(currentUsername);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("User not found: " + currentUsername);
+        }
+        int created = 0;
+        for (RouteDTO routeDTO : routeDTOs) {
+            Route route = RouteDTO.convertToEntity(routeDTO);
+            route.setCreatedBy(currentUser);
+            route.setCreationDate(LocalDateTime.now());
+            // the ID comes from the sequence, no insert is needed to know it
+            Route createdRoute = routeRepository.save(route);
+            routeAuditLog.record(createdRoute.getId(), OperationType.CREATE, currentUser,
+                    "Route created with ID: " + createdRoute.getId());
+            routeWebSocketController
+                    .notifyRouteChange(new RouteUpdateDTO(OperationType.CREATE, createdRoute.getId(), routeDTO));
+            created++;
+        }
+        entityManager.flush();
+        entityManager.clear();
+        return created;
+    }
+
     /**
      * Update an existing Route
      *
@@ -96,17 +147,12 @@ public class RouteService {
      * @param routeDetails the Route data to update
      * @return the updated Route
      */
-    @Retryable(
-        value = { PSQLException.class },
-        maxAttempts = 3,
-        backoff = @Backoff(delay = 100, multiplier = 2)
-    )
-    @Transactional(isolation = Isolation.SERIALIZABLE)
+    @Transactional(isolation = Isolation.READ_COMMITTED)
     public Route updateRoute(Integer id, RouteDTO routeDetails) {
         Route route = getRouteById(id);
-        // new unique name check
-        if (routeRepository.existsByNameIgnoreCase(routeDetails.getName())) {
-            throw new IllegalArgumentException("Route with name '" + routeDetails.getName() + "' already exists");
+        // the client edited an older version of the route
+        if (routeDetails.getVersion() != null && !routeDetails.getVersion().equals(route.getVersion())) {
+            throw new ObjectOptimisticLockingFailureException(Route.class, id);
         }
         String currentUsername = SecurityContextHolder.getContext().getAuthentication().getName();
         User currentUser;   
@@ -175,7 +221,11 @@ public class RouteService {
 
         // Update the allowAdminEditing flag if specified
         route.setAllowAdminEditing(routeDetails.isAllowAdminEditing());
-        Route updatedRoute = routeRepository.save(route);
+        // concurrent updates fail the version check, duplicate names fail the unique index
+        Route updatedRoute = routeRepository.saveAndFlush(route);
+        routeAuditLog.record(updatedRoute.getId(), OperationType.UPDATE, currentUser,
+                "Route updated with ID: " + updatedRoute.getId());
+        datasetVersionService.bump();
         RouteDTO updatedRouteDTO = RouteDTO.convertToDTO(updatedRoute);
         routeWebSocketController
                 .notifyRouteChange(new RouteUpdateDTO(OperationType.UPDATE, updatedRoute.getId(), updatedRouteDTO));
@@ -189,12 +239,7 @@ public class RouteService {
      *
      * @param id the Route ID
      */
-    @Retryable(
-        value = { PSQLException.class },
-        maxAttempts = 3,
-        backoff = @Backoff(delay = 100, multiplier = 2)
-    )
-    @Transactional(isolation = Isolation.SERIALIZABLE)
+    @Transactional(isolation = Isolation.READ_COMMITTED)
     public void deleteRoute(Integer id) {
         Route route = getRouteById(id);
         String currentUsername = SecurityContextHolder.getContext().getAuthentication().getName();
@@ -220,8 +265,10 @@ public class RouteService {
         //    lockProvider.getReentranLock().lock();
         //}
         routeRepository.delete(route);
+        routeAuditLog.record(route.getId(), OperationType.DELETE, currentUser,
+                "Route deleted with ID: " + route.getId());
+        datasetVersionService.bump();
         routeWebSocketController.notifyRouteChange(new RouteUpdateDTO(OperationType.DELETE, route.getId(), null));
-        // Create audit log
         routeWebSocketController.notifyRouteChange(
                 new RouteUpdateDTO(OperationType.DELETE, route.getId(), RouteDTO.convertToDTO(route)));
         //lockProvider.getReentranLock().unlock();
@@ -239,57 +286,113 @@ public class RouteService {
     }
 
     /**
-     * Get all Routes
+     * Get a page of Routes
+     *
+     * @param after  the cursor returned with the previous page, null for the
+     *               first one
+     * @param size   the page size, capped at {@link KeysetPaging#MAX_PAGE_SIZE}
+     * @param sortBy the field to sort by (e.g., "id", "name", "rating",
+     *               "creationDate")
+     * @return page of Routes
+     */
+    @Transactional(readOnly = true)
+    public PageDTO<Route> getAllRoutes(String after, Integer size, String sortBy) {
+        Sort sort = KeysetPaging.sort(sortBy, SORTABLE_FIELDS);
+        int pageSize = KeysetPaging.pageSize(size);
+        Specification<Route> filter = RouteSpecifications.withDetails().and(KeysetPaging.after(sortBy, after));
+        List<Route> rows = routeRepository.findBy(filter,
+                query -> query.sortBy(sort).limit(pageSize + 1).all());
+        return KeysetPaging.toPage(rows, pageSize, sortBy);
+    }
+
+    /**
+     * Pass every Route to the consumer in ID order without materializing the
+     * whole table: rows come from a database cursor and the persistence context
+     * is cleared as the cursor advances, so memory stays flat
      *
-     * @return list of Routes
+     * @param consumer the Route handler, called once per Route
      */
-    public List<Route> getAllRoutes() {
-        return routeRepository.findAll();
+    @Transactional(readOnly = true)
+    public void streamAllRoutes(Consumer<Route> consumer) {
+        try (Stream<Route> routes = routeRepository.streamAllWithDetails()) {
+            int[] count = { 0 };
+            routes.forEach(route -> {
+                consumer.accept(route);
+                if (++count[0] % STREAM_CLEAR_INTERVAL == 0) {
+                    entityManager.clear();
+                }
+            });
+        }
     }
 
     /**
-     * Delete all routes with a specific rating
+     * Delete all routes with a specific rating created by the current user
      *
      * @param rating the rating to match
+     * @return IDs of the deleted routes
+     */
+    @Transactional
+    public List<Integer> deleteRoutesByRating(int rating) {
+        String currentUsername = SecurityContextHolder.getContext().getAuthentication().getName();
+        User currentUser;
+        try {
+            currentUser = userService.getUserByUsername(currentUsername);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("User not found: " + currentUsername);
+        }
+        RouteFilterDTO filter = new RouteFilterDTO();
+        filter.setRating(rating);
+        filter.setOwnerId(currentUser.getId());
+        return deleteRoutes(filter, currentUser);
+    }
+
+    /**
+     * Delete all routes matching the filter that the current user may delete:
+     * their own routes, and for admins also routes that allow admin editing
+     *
+     * @param filter the routes to delete, at least one criterion is required
+     * @return IDs of the deleted routes
      */
-    public void deleteRoutesByRating(int rating) {
+    @Transactional
+    public List<Integer> deleteRoutesByFilter(RouteFilterDTO filter) {
+        if (filter.isEmpty()) {
+            throw new IllegalArgumentException("At least one filter criterion is required for bulk deletion");
+        }
         String currentUsername = SecurityContextHolder.getContext().getAuthentication().getName();
-            User currentUser;
+        User currentUser;
         try {
             currentUser = userService.getUserByUsername(currentUsername);
         } catch (IllegalArgumentException e) {
             throw new IllegalArgumentException("User not found: " + currentUsername);
         }
-        List<Route> routesToDelete = routeRepository.findAll()
-                .stream()
-                .filter(route -> route.getRating() == rating)
-                .filter(route -> route.getCreatedBy().getId() == currentUser.getId())
-                .collect(Collectors.toList());
-        routeRepository.deleteAll(routesToDelete);
-        routeWebSocketController.notifyRouteChange(new RouteUpdateDTO(OperationType.DELETE, 0, null));
-
-        for (Route route : routesToDelete) {
-            RouteAudit audit = new RouteAudit();
-            audit.setRoute(route);
-            audit.setOperationType(OperationType.DELETE);
-            audit.setTimestamp(LocalDateTime.now());
-            audit.setPerformedBy(currentUser);
-            audit.setDescription("Route deleted with ID: " + route.getId());
-            routeAuditRepository.save(audit);
+        return deleteRoutes(filter, currentUser);
+    }
+
+    private List<Integer> deleteRoutes(RouteFilterDTO filter, User currentUser) {
+        boolean isAdmin = currentUser.getRoles().contains(Role.ADMIN);
+        List<Integer> deletedIds = routeRepository.deleteByFilter(filter, currentUser.getId(), isAdmin);
+        if (deletedIds.isEmpty()) {
+            return deletedIds;
         }
+        routeAuditRepository.insertDeleteAudits(deletedIds.toArray(new Integer[0]), currentUser.getId());
+        datasetVersionService.bump();
+        routeWebSocketController.notifyRouteBulkDelete(new RouteBulkDeleteDTO(OperationType.DELETE, deletedIds));
+        return deletedIds;
     }
 
     /**
      * Get all routes where the name contains the specified substring
      *
      * @param substring the substring to search for in route names
-     * @return list of matching routes
+     * @param page      the page number, starting from 0
+     * @param size      the page size, capped at {@link KeysetPaging#MAX_PAGE_SIZE}
+     * @return list of matching routes, most relevant first
      */
-    public List<Route> getRoutesByNameContains(String substring) {
-        return routeRepository.findAll()
-                .stream()
-                .filter(route -> route.getName().toLowerCase().contains(substring.toLowerCase()))
-                .collect(Collectors.toList());
+    public List<Route> getRoutesByNameContains(String substring, int page, Integer size) {
+        if (page < 0) {
+            throw new IllegalArgumentException("Page number cannot be negative");
+        }
+        return routeNameSearch.search(substring, page, KeysetPaging.pageSize(size));
     }
 
     /**
@@ -299,48 +402,34 @@ public class RouteService {
      * @return list of matching routes
      */
     public List<Route> getRoutesByRatingLessThan(int rating) {
-        return routeRepository.findAll()
-                .stream()
-                .filter(route -> route.getRating() < rating)
-                .collect(Collectors.toList());
+        return routeRepository.findByRatingLessThan(rating);
     }
 
     /**
-     * Find all routes between specified locations and sort by a given parameter
+     * Find routes between specified locations, sorted by a given parameter
      *
      * @param fromLocationName the name of the origin location
      * @param toLocationName   the name of the destination location
      * @param sortBy           the parameter to sort by (e.g., "distance", "rating",
      *                         "name")
-     * @return sorted list of matching routes
+     * @param page             the page number, starting from 0
+     * @param size             the page size, capped at
+     *                         {@link KeysetPaging#MAX_PAGE_SIZE}
+     * @return sorted page of matching routes
      */
-    public List<Route> findRoutesBetweenLocations(String fromLocationName, String toLocationName, String sortBy) {
-        List<Route> matchingRoutes = routeRepository.findAll()
-                .stream()
-                .filter(route -> route.getFrom().getName().equalsIgnoreCase(fromLocationName)
-                        && route.getTo() != null
-                        && route.getTo().getName().equalsIgnoreCase(toLocationName))
-                .collect(Collectors.toList());
-
-        Comparator<Route> comparator;
-
-        switch (sortBy.toLowerCase()) {
-            case "distance":
-                comparator = Comparator.comparing(Route::getDistance);
-                break;
-            case "rating":
-                comparator = Comparator.comparing(Route::getRating);
-                break;
-            case "name":
-                comparator = Comparator.comparing(Route::getName);
-                break;
-            default:
-                throw new IllegalArgumentException("Invalid sort parameter: " + sortBy);
+    @Transactional(readOnly = true)
+    public List<Route> findRoutesBetweenLocations(String fromLocationName, String toLocationName, String sortBy,
+            int page, Integer size) {
+        String sortField = sortBy.toLowerCase();
+        if (!BETWEEN_LOCATIONS_SORT_FIELDS.contains(sortField)) {
+            throw new IllegalArgumentException("Invalid sort parameter: " + sortBy);
         }
-
-        return matchingRoutes.stream()
-                .sorted(comparator)
-                .collect(Collectors.toList());
+        if (page < 0) {
+            throw new IllegalArgumentException("Page number cannot be negative");
+        }
+        Sort sort = Sort.by(sortField).and(Sort.by("id"));
+        return routeRepository.findBetweenLocations(fromLocationName, toLocationName,
+                PageRequest.of(page, KeysetPaging.pageSize(size), sort));
     }
 
     /**
@@ -0,0 +1,238 @@
+package itmo.labs.service;
+
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import io.minio.ListObjectsArgs;
+import io.minio.MinioClient;
+import io.minio.RemoveObjectsArgs;
+import io.minio.Result;
+import io.minio.messages.DeleteError;
+import io.minio.messages.DeleteObject;
+import io.minio.messages.Item;
+import itmo.labs.dto.StorageCleanupStatsDTO;
+
+/**
+ * Removes stored objects through an outbox. Callers record the keys to
+ * remove in storage_cleanup_task, in the same transaction as the change
+ * that made the objects obsolete, and return without waiting for MinIO. A
+ * background worker claims due tasks with {@code FOR UPDATE SKIP LOCKED},
+ * removes their objects and retries failures with exponential backoff, so
+ * an outage of MinIO only delays the cleanup. A periodic sweep schedules
+ * objects that no import or upload refers to, such as the leftovers of a
+ * node that died between storing a file and recording it. While finished
+ * imports without an object key exist, their files cannot be told from
+ * orphans and the sweep only reports what it would remove.
+ */
+@Service
+public class StorageCleanupService {
+
+    private static final String INSERT_SQL = "INSERT INTO storage_cleanup_task (object_key, reason) VALUES (?, ?) "
+            + "ON CONFLICT (object_key) DO NOTHING";
+    // claimed tasks are pushed back by the lease, so a node that dies while removing them only delays them
+    private static final String CLAIM_SQL = "UPDATE storage_cleanup_task "
+            + "SET next_attempt_at = localtimestamp + make_interval(secs => ?) "
+            + "WHERE id IN (SELECT id FROM storage_cleanup_task WHERE next_attempt_at <= localtimestamp "
+            + "ORDER BY next_attempt_at LIMIT ? FOR UPDATE SKIP LOCKED) RETURNING id, object_key, attempts";
+    private static final String DONE_SQL = "DELETE FROM storage_cleanup_task WHERE id = ?";
+    private static final String RETRY_SQL = "UPDATE storage_cleanup_task SET attempts = attempts + 1, "
+            + "last_error = ?, next_attempt_at = localtimestamp + make_interval(secs => ?) WHERE id = ?";
+    private static final String STATS_SQL = "SELECT count(*), "
+            + "count(*) FILTER (WHERE attempts > 0), "
+            + "coalesce(extract(epoch FROM localtimestamp - min(created_at)), 0) "
+            + "FROM storage_cleanup_task";
+    // stored objects are named <user>_<millis>/..., the first segment identifies the upload they belong to
+    private static final String REFERENCED_PREFIXES_SQL = "SELECT DISTINCT split_part(object_key, '/', 1) FROM ("
+            + "SELECT object_key FROM import_history WHERE object_key IS NOT NULL "
+            + "UNION ALL SELECT error_report_key FROM import_history WHERE error_report_key IS NOT NULL "
+            + "UNION ALL SELECT object_key FROM import_upload) referenced";
+    private static final String UNRESOLVED_IMPORTS_SQL = "SELECT count(*) FROM import_history "
+            + "WHERE object_key IS NULL AND status IN ('SUCCESS', 'PARTIAL')";
+    private static final int LAST_ERROR_LENGTH = 1000;
+    private static final int SWEEP_BATCH_SIZE = 1000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final MinioClient minioClient;
+    private final PresignedUrlCache presignedUrlCache;
+    private final int batchSize;
+    private final long leaseSeconds;
+    private final long backoffBaseSeconds;
+    private final long backoffMaxSeconds;
+    private final long sweepGraceHours;
+    private final boolean sweepReportOnly;
+
+    private final AtomicLong removed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong orphansFound = new AtomicLong();
+    private volatile boolean lastSweepReportOnly;
+
+    public StorageCleanupService(JdbcTemplate jdbcTemplate, MinioClient minioClient,
+            PresignedUrlCache presignedUrlCache,
+            @Value("${storage-cleanup.batch-size:100}") int batchSize,
+            @Value("${storage-cleanup.lease-seconds:120}") long leaseSeconds,
+            @Value("${storage-cleanup.backoff-base-seconds:10}") long backoffBaseSeconds,
+            @Value("${storage-cleanup.backoff-max-seconds:3600}") long backoffMaxSeconds,
+            @Value("${storage-cleanup.sweep-grace-hours:24}") long sweepGraceHours,
+            @Value("${storage-cleanup.sweep-report-only:false}") boolean sweepReportOnly) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.minioClient = minioClient;
+        this.presignedUrlCache = presignedUrlCache;
+        this.batchSize = batchSize;
+        this.leaseSeconds = leaseSeconds;
+        this.backoffBaseSeconds = backoffBaseSeconds;
+        this.backoffMaxSeconds = backoffMaxSeconds;
+        this.sweepGraceHours = sweepGraceHours;
+        this.sweepReportOnly = sweepReportOnly;
+    }
+
+    /**
+     * Record objects to remove. Joins the caller's transaction, so the
+     * objects are only removed if it commits
+     *
+     * @param reason     why the objects are removed, kept for diagnosis
+     * @param objectKeys the objects; keys already scheduled are skipped
+     */
+    @Transactional
+    public void schedule(String reason, Collection<String> objectKeys) {
+        if (objectKeys.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(INSERT_SQL, objectKeys, objectKeys.size(), (ps, objectKey) -> {
+            ps.setString(1, objectKey);
+            ps.setString(2, reason);
+        });
+        objectKeys.forEach(presignedUrlCache::evict);
+    }
+
+    /**
+     * Remove the objects of due tasks
+     */
+    @Scheduled(fixedDelayString = "${storage-cleanup.poll-interval-ms:5000}")
+    public void poll() {
+        List<Task> tasks;
+        do {
+            tasks = jdbcTemplate.query(CLAIM_SQL,
+                    (rs, rowNum) -> new Task(rs.getLong("id"), rs.getString("object_key"), rs.getInt("attempts")),
+                    leaseSeconds, batchSize);
+            if (!tasks.isEmpty()) {
+                remove(tasks);
+            }
+        } while (tasks.size() == batchSize);
+    }
+
+    private void remove(List<Task> tasks) {
+        List<DeleteObject> objects = new ArrayList<>();
+        tasks.forEach(task -> objects.add(new DeleteObject(task.objectKey())));
+        // object key -> error, removing a missing object is not an error
+        Map<String, String> errors = new HashMap<>();
+        try {
+            // the deletion runs while the results are read
+            for (Result<DeleteError> result : minioClient.removeObjects(
+                    RemoveObjectsArgs.builder().bucket(RouteImportService.BUCKET).objects(objects).build())) {
+                DeleteError error = result.get();
+                errors.put(error.objectName(), error.code() + ": " + error.message());
+            }
+        } catch (Exception e) {
+            tasks.forEach(task -> errors.put(task.objectKey(), String.valueOf(e.getMessage())));
+        }
+        for (Task task : tasks) {
+            String error = errors.get(task.objectKey());
+            if (error == null) {
+                jdbcTemplate.update(DONE_SQL, task.id());
+                removed.incrementAndGet();
+            } else {
+                if (error.length() > LAST_ERROR_LENGTH) {
+                    error = error.substring(0, LAST_ERROR_LENGTH);
+                }
+                jdbcTemplate.update(RETRY_SQL, error, backoffSeconds(task.attempts()), task.id());
+                failed.incrementAndGet();
+                System.err.println("Failed to delete " + task.objectKey() + " from MinIO (attempt "
+                        + (task.attempts() + 1) + "): " + error);
+            }
+        }
+    }
+
+    private long backoffSeconds(int attempts) {
+        // doubles with every failed attempt until it reaches the maximum
+        return Math.min(backoffBaseSeconds << Math.min(attempts, 30), backoffMaxSeconds);
+    }
+
+    /**
+     * Schedule the removal of stored objects that no import or upload refers
+     * to. Objects younger than storage-cleanup.sweep-grace-hours are left
+     * alone, their import may not be recorded yet. Only reports the orphans
+     * with storage-cleanup.sweep-report-only or while a finished import has
+     * no object key, as its file would look like an orphan
+     */
+    @Scheduled(cron = "${storage-cleanup.sweep-cron:0 30 3 * * *}")
+    public void sweep() {
+        long unresolved = jdbcTemplate.queryForObject(UNRESOLVED_IMPORTS_SQL, Long.class);
+        if (unresolved > 0) {
+            System.err.println("Orphan sweep only reports: " + unresolved
+                    + " finished import(s) have no object key, their files cannot be told from orphans");
+        }
+        boolean reportOnly = sweepReportOnly || unresolved > 0;
+        lastSweepReportOnly = reportOnly;
+        // read before listing, so an object stored later is younger than the grace period
+        Set<String> referenced = new HashSet<>(jdbcTemplate.queryForList(REFERENCED_PREFIXES_SQL, String.class));
+        ZonedDateTime cutoff = ZonedDateTime.now().minusHours(sweepGraceHours);
+        List<String> orphans = new ArrayList<>();
+        try {
+            for (Result<Item> result : minioClient.listObjects(ListObjectsArgs.builder()
+                    .bucket(RouteImportService.BUCKET)
+                    .recursive(true)
+                    .build())) {
+                Item item = result.get();
+                String name = item.objectName();
+                int slash = name.indexOf('/');
+                String prefix = slash == -1 ? name : name.substring(0, slash);
+                if (item.isDir() || referenced.contains(prefix) || !item.lastModified().isBefore(cutoff)) {
+                    continue;
+                }
+                orphans.add(name);
+                if (orphans.size() == SWEEP_BATCH_SIZE) {
+                    handleOrphans(orphans, reportOnly);
+                }
+            }
+        } catch (Exception e) {
+            System.err.println("Failed to list MinIO objects for the orphan sweep: " + e.getMessage());
+        }
+        handleOrphans(orphans, reportOnly);
+    }
+
+    private void handleOrphans(List<String> orphans, boolean reportOnly) {
+        if (orphans.isEmpty()) {
+            return;
+        }
+        if (reportOnly) {
+            orphans.forEach(orphan -> System.err.println("Orphan sweep would remove " + orphan));
+        } else {
+            // a self-call outside of any transaction, the inserts commit as they run
+            schedule("orphan", orphans);
+        }
+        orphansFound.addAndGet(orphans.size());
+        orphans.clear();
+    }
+
+    public StorageCleanupStatsDTO getStats() {
+        return jdbcTemplate.queryForObject(STATS_SQL,
+                (rs, rowNum) -> new StorageCleanupStatsDTO(rs.getLong(1), rs.getLong(2), rs.getLong(3),
+                        removed.get(), failed.get(), orphansFound.get(), lastSweepReportOnly));
+    }
+
+    private record Task(long id, String objectKey, int attempts) {
+    }
+}
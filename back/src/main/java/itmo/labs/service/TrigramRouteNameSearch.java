@@ -0,0 +1,36 @@
+package itmo.labs.service;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.annotation.Transactional;
+
+import itmo.labs.model.Route;
+import itmo.labs.repository.RouteRepository;
+
+/**
+ * PostgreSQL search: {@code ILIKE} served by the pg_trgm GIN index on
+ * {@code route.name} (see schema-postgresql.sql), ranked by trigram similarity.
+ */
+public class TrigramRouteNameSearch implements RouteNameSearch {
+
+    private final RouteRepository routeRepository;
+
+    public TrigramRouteNameSearch(RouteRepository routeRepository) {
+        this.routeRepository = routeRepository;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<Route> search(String substring, int page, int size) {
+        List<Integer> ids = routeRepository.searchIdsByNameTrigram(RouteNameSearch.containsPattern(substring),
+                substring, PageRequest.of(page, size));
+        // the native query only ranks, the routes are loaded with their details in one go
+        Map<Integer, Route> routes = routeRepository.findByIdIn(ids).stream()
+                .collect(Collectors.toMap(Route::getId, Function.identity()));
+        return ids.stream().map(routes::get).collect(Collectors.toList());
+    }
+}
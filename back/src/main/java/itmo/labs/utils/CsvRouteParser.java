@@ -0,0 +1,250 @@
+package itmo.labs.utils;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import itmo.labs.dto.CoordinatesDTO;
+import itmo.labs.dto.LocationDTO;
+import itmo.labs.dto.RouteDTO;
+
+/**
+ * Reads routes from an RFC 4180 CSV file, one route per record. The first
+ * record names the columns, in any order: name, coordinates_x,
+ * coordinates_y, from_name, from_x, from_y, distance and rating are
+ * required; to_name, to_x and to_y may be empty for a route without a
+ * destination, and allow_admin_editing defaults to false.
+ */
+public class CsvRouteParser implements RouteImportFormat {
+
+    public static final String NAME = "csv";
+
+    private static final List<String> REQUIRED_COLUMNS = List.of("name", "coordinates_x", "coordinates_y",
+            "from_name", "from_x", "from_y", "distance", "rating");
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public boolean supports(String filename, String contentType) {
+        return RouteImportFormat.hasExtension(filename, ".csv")
+                || RouteImportFormat.hasContentType(contentType, "text/csv");
+    }
+
+    @Override
+    public void parse(InputStream inputStream, Handler handler) {
+        RecordReader reader = new RecordReader(
+                new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8)));
+        try {
+            List<String> header = reader.next();
+            if (header == null) {
+                return;
+            }
+            Map<String, Integer> columns = new HashMap<>();
+            for (int i = 0; i < header.size(); i++) {
+                columns.put(header.get(i).trim().toLowerCase(Locale.ROOT), i);
+            }
+            for (String column : REQUIRED_COLUMNS) {
+                if (!columns.containsKey(column)) {
+                    throw malformed(1, "missing column '" + column + "'");
+                }
+            }
+            List<String> record;
+            while ((record = reader.next()) != null) {
+                if (record.size() == 1 && record.get(0) == null) {
+                    // an empty line
+                    continue;
+                }
+                handler.route(new Row(columns, record, reader.recordLine).toRouteDTO());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static IllegalArgumentException malformed(int lineNo, String message) {
+        return new IllegalArgumentException("Error parsing CSV file at line " + lineNo + ": " + message);
+    }
+
+    /**
+     * One record with its values looked up by column name
+     */
+    private static final class Row {
+        private final Map<String, Integer> columns;
+        private final List<String> values;
+        private final int lineNo;
+
+        Row(Map<String, Integer> columns, List<String> values, int lineNo) {
+            this.columns = columns;
+            this.values = values;
+            this.lineNo = lineNo;
+        }
+
+        RouteDTO toRouteDTO() {
+            RouteDTO routeDTO = new RouteDTO();
+            routeDTO.setName(value("name") == null ? "" : value("name"));
+            routeDTO.setCoordinates(new CoordinatesDTO(floatValue("coordinates_x"), doubleValue("coordinates_y")));
+            routeDTO.setFrom(location("from"));
+            if (value("to_name") != null || value("to_x") != null || value("to_y") != null) {
+                routeDTO.setTo(location("to"));
+            }
+            routeDTO.setDistance(intValue("distance"));
+            routeDTO.setRating(intValue("rating"));
+            String allowAdminEditing = value("allow_admin_editing");
+            if (allowAdminEditing != null) {
+                if (!allowAdminEditing.equalsIgnoreCase("true") && !allowAdminEditing.equalsIgnoreCase("false")) {
+                    throw malformed(lineNo, "invalid boolean in column 'allow_admin_editing'");
+                }
+                routeDTO.setAllowAdminEditing(Boolean.parseBoolean(allowAdminEditing));
+            }
+            return routeDTO;
+        }
+
+        private LocationDTO location(String prefix) {
+            LocationDTO location = new LocationDTO();
+            location.setName(value(prefix + "_name") == null ? "" : value(prefix + "_name"));
+            location.setX(floatValue(prefix + "_x"));
+            location.setY(floatValue(prefix + "_y"));
+            return location;
+        }
+
+        private String value(String column) {
+            Integer index = columns.get(column);
+            if (index == null || index >= values.size()) {
+                return null;
+            }
+            return values.get(index);
+        }
+
+        private String required(String column) {
+            String value = value(column);
+            if (value == null) {
+                throw malformed(lineNo, "missing value in column '" + column + "'");
+            }
+            return value.trim();
+        }
+
+        private float floatValue(String column) {
+            try {
+                return Float.parseFloat(required(column));
+            } catch (NumberFormatException e) {
+                throw malformed(lineNo, "invalid number in column '" + column + "'");
+            }
+        }
+
+        private double doubleValue(String column) {
+            try {
+                return Double.parseDouble(required(column));
+            } catch (NumberFormatException e) {
+                throw malformed(lineNo, "invalid number in column '" + column + "'");
+            }
+        }
+
+        private int intValue(String column) {
+            try {
+                return Integer.parseInt(required(column));
+            } catch (NumberFormatException e) {
+                throw malformed(lineNo, "invalid integer in column '" + column + "'");
+            }
+        }
+    }
+
+    /**
+     * Splits the input into records; quoted values may contain separators,
+     * doubled quotes and line breaks. Empty unquoted values are read as null
+     */
+    private static final class RecordReader {
+        private final Reader reader;
+        private int line = 1;
+        // line where the last returned record starts
+        int recordLine;
+        private int pending = -2;
+
+        RecordReader(Reader reader) {
+            this.reader = reader;
+        }
+
+        List<String> next() throws IOException {
+            int c = read();
+            if (c == -1) {
+                return null;
+            }
+            recordLine = line;
+            List<String> record = new ArrayList<>();
+            StringBuilder value = new StringBuilder();
+            boolean quoted = false;
+            while (true) {
+                if (c == '"' && value.isEmpty() && !quoted) {
+                    quoted = true;
+                    readQuoted(value);
+                    c = read();
+                    continue;
+                }
+                if (c == ',' || c == '\n' || c == '\r' || c == -1) {
+                    record.add(quoted || !value.isEmpty() ? value.toString() : null);
+                    value.setLength(0);
+                    quoted = false;
+                    if (c == ',') {
+                        c = read();
+                        continue;
+                    }
+                    if (c == '\r') {
+                        int next = read();
+                        if (next != '\n') {
+                            pending = next;
+                        }
+                    }
+                    if (c != -1) {
+                        line++;
+                    }
+                    return record;
+                }
+                if (quoted) {
+                    throw malformed(line, "unexpected character after a quoted value");
+                }
+                value.append((char) c);
+                c = read();
+            }
+        }
+
+        private void readQuoted(StringBuilder value) throws IOException {
+            int start = line;
+            while (true) {
+                int c = read();
+                if (c == -1) {
+                    throw malformed(start, "unterminated quoted value");
+                }
+                if (c == '"') {
+                    int next = read();
+                    if (next != '"') {
+                        pending = next;
+                        return;
+                    }
+                } else if (c == '\n') {
+                    line++;
+                }
+                value.append((char) c);
+            }
+        }
+
+        private int read() throws IOException {
+            if (pending != -2) {
+                int c = pending;
+                pending = -2;
+                return c;
+            }
+            return reader.read();
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package itmo.labs.utils;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Locale;
+import java.util.zip.GZIPInputStream;
+
+import com.github.luben.zstd.ZstdInputStream;
+
+/**
+ * Compression of an import file. Compressed files are stored in MinIO as
+ * they were uploaded and only decompressed while they are parsed, with a
+ * limit on the decompression ratio against zip bombs.
+ */
+public enum ImportCompression {
+    NONE(null, null),
+    GZIP(".gz", "gzip"),
+    ZSTD(".zst", "zstd");
+
+    // decompressed output up to this size is allowed for any input
+    private static final long RATIO_FLOOR_BYTES = 64 * 1024;
+
+    private final String extension;
+    private final String encoding;
+
+    ImportCompression(String extension, String encoding) {
+        this.extension = extension;
+        this.encoding = encoding;
+    }
+
+    /**
+     * Find the compression of an upload by its Content-Encoding or the
+     * extension of its name
+     *
+     * @param filename        original name of the file, may be null
+     * @param contentEncoding Content-Encoding of the upload, may be null
+     */
+    public static ImportCompression detect(String filename, String contentEncoding) {
+        if (contentEncoding != null && !contentEncoding.isBlank()
+                && !contentEncoding.trim().equalsIgnoreCase("identity")) {
+            String encoding = contentEncoding.trim().toLowerCase(Locale.ROOT);
+            for (ImportCompression compression : values()) {
+                if (encoding.equals(compression.encoding)
+                        || compression == GZIP && encoding.equals("x-gzip")) {
+                    return compression;
+                }
+            }
+            throw new IllegalArgumentException("Unsupported Content-Encoding: " + contentEncoding);
+        }
+        for (ImportCompression compression : values()) {
+            if (compression.extension != null && filename != null
+                    && filename.toLowerCase(Locale.ROOT).endsWith(compression.extension)) {
+                return compression;
+            }
+        }
+        return NONE;
+    }
+
+    /**
+     * Name of the file without the extension of this compression, which
+     * tells the format of the content
+     */
+    public String stripExtension(String filename) {
+        if (extension == null || filename == null || !filename.toLowerCase(Locale.ROOT).endsWith(extension)) {
+            return filename;
+        }
+        return filename.substring(0, filename.length() - extension.length());
+    }
+
+    /**
+     * Decompress a stored file while it is read
+     *
+     * @param input    the file as stored
+     * @param maxRatio largest allowed ratio of decompressed to compressed
+     *                 bytes
+     */
+    public InputStream decompress(InputStream input, long maxRatio) throws IOException {
+        if (this == NONE) {
+            return input;
+        }
+        CountingInputStream compressed = new CountingInputStream(input);
+        InputStream decompressed = this == GZIP ? new GZIPInputStream(compressed, 64 * 1024)
+                : new ZstdInputStream(compressed);
+        return new RatioLimitedInputStream(decompressed, compressed, maxRatio);
+    }
+
+    private static final class RatioLimitedInputStream extends FilterInputStream {
+        private final CountingInputStream compressed;
+        private final long maxRatio;
+        private long count;
+
+        RatioLimitedInputStream(InputStream in, CountingInputStream compressed, long maxRatio) {
+            super(in);
+            this.compressed = compressed;
+            this.maxRatio = maxRatio;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] one = new byte[1];
+            return read(one, 0, 1) == -1 ? -1 : one[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) {
+                count += n;
+                if (count > Math.max(compressed.getCount(), RATIO_FLOOR_BYTES) * maxRatio) {
+                    throw new IllegalArgumentException("Import file decompresses to more than " + maxRatio
+                            + " times its compressed size");
+                }
+            }
+            return n;
+        }
+    }
+}
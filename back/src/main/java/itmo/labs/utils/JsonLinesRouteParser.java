@@ -0,0 +1,149 @@
+package itmo.labs.utils;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import itmo.labs.dto.CoordinatesDTO;
+import itmo.labs.dto.LocationDTO;
+import itmo.labs.dto.RouteDTO;
+
+/**
+ * Reads an import file in JSON Lines, one entry per line. The "type" field
+ * of an entry is "route" (the default), "coordinates" or "location"; the
+ * other fields are those of the YAML format:
+ *
+ * <pre>
+ * {"name": "R1", "coordinates": {"x": 1, "y": 2}, "from": {"name": "A", "x": 0, "y": 0}, "distance": 10, "rating": 5, "allowAdminEditing": false}
+ * {"type": "location", "name": "B", "x": 3, "y": 4}
+ * </pre>
+ */
+public class JsonLinesRouteParser implements RouteImportFormat {
+
+    public static final String NAME = "jsonl";
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public boolean supports(String filename, String contentType) {
+        return RouteImportFormat.hasExtension(filename, ".jsonl", ".ndjson")
+                || RouteImportFormat.hasContentType(contentType, "application/jsonl", "application/x-ndjson",
+                        "application/x-jsonlines");
+    }
+
+    @Override
+    public void parse(InputStream inputStream, Handler handler) {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8));
+        int lineNo = 0;
+        try {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNo++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                JsonNode entry;
+                try {
+                    entry = MAPPER.readTree(line);
+                } catch (JsonProcessingException e) {
+                    throw malformed(lineNo, e.getOriginalMessage());
+                }
+                if (!entry.isObject()) {
+                    throw malformed(lineNo, "entry must be an object");
+                }
+                String type = entry.path("type").asText("route");
+                try {
+                    switch (type) {
+                        case "route" -> handler.route(convertToRouteDTO(entry));
+                        case "coordinates" -> handler.coordinates(convertToCoordinatesDTO(entry));
+                        case "location" -> handler.location(convertToLocationDTO(entry));
+                        default -> throw malformed(lineNo, "unknown entry type '" + type + "'");
+                    }
+                } catch (MissingFieldException e) {
+                    throw malformed(lineNo, "invalid or missing field '" + e.getMessage() + "' in " + type + " entry");
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static IllegalArgumentException malformed(int lineNo, String message) {
+        return new IllegalArgumentException("Error parsing JSON Lines file at line " + lineNo + ": " + message);
+    }
+
+    private static CoordinatesDTO convertToCoordinatesDTO(JsonNode node) {
+        CoordinatesDTO coordinates = new CoordinatesDTO();
+        coordinates.setX(number(node, "x").floatValue());
+        coordinates.setY(number(node, "y").doubleValue());
+        return coordinates;
+    }
+
+    private static LocationDTO convertToLocationDTO(JsonNode node) {
+        LocationDTO location = new LocationDTO();
+        location.setName(text(node, "name"));
+        location.setX(number(node, "x").floatValue());
+        location.setY(number(node, "y").floatValue());
+        return location;
+    }
+
+    private static RouteDTO convertToRouteDTO(JsonNode node) {
+        RouteDTO routeDTO = new RouteDTO();
+        routeDTO.setName(text(node, "name"));
+        routeDTO.setCoordinates(convertToCoordinatesDTO(object(node, "coordinates")));
+        routeDTO.setFrom(convertToLocationDTO(object(node, "from")));
+        if (node.hasNonNull("to")) {
+            routeDTO.setTo(convertToLocationDTO(object(node, "to")));
+        }
+        routeDTO.setDistance(number(node, "distance").intValue());
+        routeDTO.setRating(number(node, "rating").intValue());
+        JsonNode allowAdminEditing = node.get("allowAdminEditing");
+        if (allowAdminEditing == null || !allowAdminEditing.isBoolean()) {
+            throw new MissingFieldException("allowAdminEditing");
+        }
+        routeDTO.setAllowAdminEditing(allowAdminEditing.booleanValue());
+        return routeDTO;
+    }
+
+    private static JsonNode number(JsonNode node, String field) {
+        JsonNode value = node.get(field);
+        if (value == null || !value.isNumber()) {
+            throw new MissingFieldException(field);
+        }
+        return value;
+    }
+
+    private static String text(JsonNode node, String field) {
+        JsonNode value = node.get(field);
+        if (value == null || !value.isTextual()) {
+            throw new MissingFieldException(field);
+        }
+        return value.textValue();
+    }
+
+    private static JsonNode object(JsonNode node, String field) {
+        JsonNode value = node.get(field);
+        if (value == null || !value.isObject()) {
+            throw new MissingFieldException(field);
+        }
+        return value;
+    }
+
+    private static final class MissingFieldException extends RuntimeException {
+        MissingFieldException(String field) {
+            super(field, null, false, false);
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package itmo.labs.utils;
+
+import itmo.labs.dto.PageDTO;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.List;
+import java.util.Set;
+
+import org.springframework.beans.BeanWrapper;
+import org.springframework.beans.BeanWrapperImpl;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import jakarta.persistence.criteria.Path;
+
+/**
+ * Keyset (cursor) pagination over an entity ordered by a sort field and then
+ * by {@code id}. The cursor is the (id, sort value) pair of the last row of the
+ * previous page, so every page is a bounded index range scan instead of an
+ * OFFSET over the whole table.
+ */
+public class KeysetPaging {
+
+    public static final int DEFAULT_PAGE_SIZE = 50;
+    public static final int MAX_PAGE_SIZE = 500;
+
+    private static final String ID = "id";
+
+    /**
+     * Clamp the requested page size to the allowed range
+     *
+     * @param size the requested size, may be null
+     * @return the page size to use
+     */
+    public static int pageSize(Integer size) {
+        if (size == null) {
+            return DEFAULT_PAGE_SIZE;
+        }
+        if (size < 1) {
+            throw new IllegalArgumentException("Page size must be greater than 0");
+        }
+        return Math.min(size, MAX_PAGE_SIZE);
+    }
+
+    /**
+     * Check the sort field and build the matching order (sort field, then id)
+     *
+     * @param sortBy   the field to sort by
+     * @param sortable the fields allowed for this entity
+     * @return the order
+     */
+    public static Sort sort(String sortBy, Set<String> sortable) {
+        if (!sortable.contains(sortBy)) {
+            throw new IllegalArgumentException("Invalid sort parameter: " + sortBy);
+        }
+        return ID.equals(sortBy) ? Sort.by(ID) : Sort.by(sortBy).and(Sort.by(ID));
+    }
+
+    /**
+     * Restrict the query to the rows that follow the cursor
+     *
+     * @param sortBy the field the pages are sorted by
+     * @param cursor the cursor returned with the previous page, may be null
+     * @return the restriction
+     */
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    public static <T> Specification<T> after(String sortBy, String cursor) {
+        if (cursor == null || cursor.isEmpty()) {
+            return (root, query, cb) -> null;
+        }
+        String[] parts = decode(cursor);
+        return (root, query, cb) -> {
+            Path id = root.get(ID);
+            Comparable lastId = convert(parts[0], id.getJavaType());
+            if (ID.equals(sortBy)) {
+                return cb.greaterThan(id, lastId);
+            }
+            Path field = root.get(sortBy);
+            Comparable lastValue = convert(parts[1], field.getJavaType());
+            return cb.or(cb.greaterThan(field, lastValue),
+                    cb.and(cb.equal(field, lastValue), cb.greaterThan(id, lastId)));
+        };
+    }
+
+    /**
+     * Cut a page out of rows fetched with a limit of {@code size + 1}
+     *
+     * @param rows   the fetched rows
+     * @param size   the page size
+     * @param sortBy the field the pages are sorted by
+     * @return the page with the cursor of the next one
+     */
+    public static <T> PageDTO<T> toPage(List<T> rows, int size, String sortBy) {
+        if (rows.size() <= size) {
+            return new PageDTO<>(rows, null);
+        }
+        List<T> page = rows.subList(0, size);
+        BeanWrapper last = new BeanWrapperImpl(page.get(size - 1));
+        return new PageDTO<>(page, encode(last.getPropertyValue(ID), last.getPropertyValue(sortBy)));
+    }
+
+    private static String encode(Object id, Object sortValue) {
+        String raw = id + ":" + sortValue;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String[] decode(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] parts = raw.split(":", 2);
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Invalid page cursor: " + cursor);
+            }
+            return parts;
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid page cursor: " + cursor);
+        }
+    }
+
+    private static Comparable<?> convert(String value, Class<?> type) {
+        try {
+            if (type == Integer.class || type == int.class) {
+                return Integer.valueOf(value);
+            }
+            if (type == Long.class || type == long.class) {
+                return Long.valueOf(value);
+            }
+            if (type == LocalDateTime.class) {
+                return LocalDateTime.parse(value);
+            }
+            return value;
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid page cursor value: " + value);
+        }
+    }
+}
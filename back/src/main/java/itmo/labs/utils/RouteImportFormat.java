@@ -0,0 +1,81 @@
+package itmo.labs.utils;
+
+import java.io.InputStream;
+import java.util.Locale;
+
+import itmo.labs.dto.CoordinatesDTO;
+import itmo.labs.dto.LocationDTO;
+import itmo.labs.dto.RouteDTO;
+
+/**
+ * A file format routes can be imported from. An implementation reads the
+ * file as a stream and hands every entry to a {@link Handler} as soon as it
+ * is read; malformed input is reported with an IllegalArgumentException
+ * that says where in the file it is.
+ */
+public interface RouteImportFormat {
+
+    /**
+     * Receives the entries of an import file in file order
+     */
+    interface Handler {
+        void coordinates(CoordinatesDTO coordinates);
+
+        void location(LocationDTO location);
+
+        void route(RouteDTO route);
+    }
+
+    /**
+     * Name of the format, stored with the import
+     */
+    String getName();
+
+    /**
+     * Whether a file with this name or content type is in this format
+     *
+     * @param filename    original name of the file
+     * @param contentType content type of the upload, may be null
+     */
+    boolean supports(String filename, String contentType);
+
+    void parse(InputStream inputStream, Handler handler);
+
+    /**
+     * Check the extension of a file name
+     *
+     * @param filename   the file name, may be null
+     * @param extensions extensions with the dot
+     */
+    static boolean hasExtension(String filename, String... extensions) {
+        if (filename == null) {
+            return false;
+        }
+        String lower = filename.toLowerCase(Locale.ROOT);
+        for (String extension : extensions) {
+            if (lower.endsWith(extension)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Check a content type, ignoring its parameters
+     *
+     * @param contentType the content type, may be null
+     * @param types       media types
+     */
+    static boolean hasContentType(String contentType, String... types) {
+        if (contentType == null) {
+            return false;
+        }
+        String mediaType = contentType.split(";", 2)[0].trim().toLowerCase(Locale.ROOT);
+        for (String type : types) {
+            if (mediaType.equals(type)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
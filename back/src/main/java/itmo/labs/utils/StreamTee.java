@@ -0,0 +1,166 @@
+package itmo.labs.utils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Reads a stream once and hands it to two consumers running at the same
+ * time, each reading its own copy. Chunks travel through bounded queues, so
+ * the source is read no faster than the slower consumer takes it and memory
+ * stays at about two queues of chunks. When either side fails the other one
+ * is aborted and the first failure is rethrown.
+ */
+public class StreamTee {
+
+    private static final int CHUNK_SIZE = 64 * 1024;
+    private static final int QUEUE_CAPACITY = 16;
+
+    public interface Branch {
+        void consume(InputStream input) throws Exception;
+    }
+
+    /**
+     * Copy the source to both branches
+     *
+     * @param source   the stream to read once
+     * @param executor runs the branches
+     * @param first    the first consumer
+     * @param second   the second consumer
+     * @return the number of bytes read from the source
+     */
+    public static long tee(InputStream source, Executor executor, Branch first, Branch second) throws Exception {
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        Pipe firstPipe = new Pipe();
+        Pipe secondPipe = new Pipe();
+        CompletableFuture<Void> firstDone = start(first, firstPipe, executor, failure);
+        CompletableFuture<Void> secondDone = start(second, secondPipe, executor, failure);
+        long total = 0;
+        try {
+            byte[] buffer = new byte[CHUNK_SIZE];
+            int read;
+            while (failure.get() == null && (read = source.read(buffer)) != -1) {
+                // both branches only read the chunk, so they can share it
+                byte[] chunk = Arrays.copyOf(buffer, read);
+                firstPipe.put(chunk);
+                secondPipe.put(chunk);
+                total += read;
+            }
+            firstPipe.finish();
+            secondPipe.finish();
+        } catch (IOException e) {
+            failure.compareAndSet(null, e);
+        } catch (InterruptedException e) {
+            // keep the interrupt for the caller, the branches are aborted below
+            Thread.currentThread().interrupt();
+            InterruptedIOException interrupted = new InterruptedIOException("Interrupted while copying upload data");
+            interrupted.initCause(e);
+            failure.compareAndSet(null, interrupted);
+        }
+        if (failure.get() != null) {
+            firstPipe.abort(failure.get());
+            secondPipe.abort(failure.get());
+        }
+        CompletableFuture.allOf(firstDone, secondDone).exceptionally(e -> null).join();
+        Throwable cause = failure.get();
+        if (cause instanceof Exception e) {
+            throw e;
+        }
+        if (cause != null) {
+            throw new IllegalStateException(cause);
+        }
+        return total;
+    }
+
+    private static CompletableFuture<Void> start(Branch branch, Pipe pipe, Executor executor,
+            AtomicReference<Throwable> failure) {
+        return CompletableFuture.runAsync(() -> {
+            try {
+                branch.consume(pipe);
+            } catch (Throwable e) {
+                failure.compareAndSet(null, e);
+            } finally {
+                // a branch that stopped reading must not block the source
+                pipe.closed = true;
+            }
+        }, executor);
+    }
+
+    /**
+     * Bounded hand-over of chunks from the reading thread to one branch
+     */
+    private static final class Pipe extends InputStream {
+        private static final byte[] END = new byte[0];
+
+        private final BlockingQueue<byte[]> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+        private volatile boolean closed;
+        private volatile Throwable aborted;
+        private byte[] current;
+        private int position;
+
+        void put(byte[] chunk) throws InterruptedException {
+            while (!closed && !queue.offer(chunk, 100, TimeUnit.MILLISECONDS)) {
+                // the branch is slower than the source, wait for room
+            }
+        }
+
+        void finish() throws InterruptedException {
+            put(END);
+        }
+
+        void abort(Throwable cause) {
+            aborted = cause;
+            queue.clear();
+            queue.offer(END);
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] one = new byte[1];
+            return read(one, 0, 1) == -1 ? -1 : one[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            if (current == null || position == current.length) {
+                try {
+                    current = queue.take();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    InterruptedIOException interrupted = new InterruptedIOException(
+                            "Interrupted while waiting for upload data");
+                    interrupted.initCause(e);
+                    throw interrupted;
+                }
+                position = 0;
+                if (aborted != null) {
+                    throw new IOException("Upload aborted: " + aborted.getMessage(), aborted);
+                }
+                if (current == END) {
+                    // stay at the end for further reads
+                    queue.offer(END);
+                    return -1;
+                }
+            }
+            int n = Math.min(len, current.length - position);
+            System.arraycopy(current, position, b, off, n);
+            position += n;
+            return n;
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
+}
@@ -3,57 +3,203 @@ package itmo.labs.utils;
 import itmo.labs.dto.*;
 import org.yaml.snakeyaml.LoaderOptions;
 import org.yaml.snakeyaml.Yaml;
-import org.yaml.snakeyaml.constructor.Constructor;
+import org.yaml.snakeyaml.constructor.SafeConstructor;
+import org.yaml.snakeyaml.error.Mark;
+import org.yaml.snakeyaml.error.YAMLException;
+import org.yaml.snakeyaml.events.AliasEvent;
+import org.yaml.snakeyaml.events.CollectionStartEvent;
+import org.yaml.snakeyaml.events.Event;
+import org.yaml.snakeyaml.events.ScalarEvent;
+import org.yaml.snakeyaml.nodes.NodeId;
+import org.yaml.snakeyaml.nodes.ScalarNode;
+import org.yaml.snakeyaml.nodes.Tag;
+import org.yaml.snakeyaml.resolver.Resolver;
 
 import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
-public class YamlRouteParser {
+/**
+ * Reads an import file section by section from SnakeYAML parser events and
+ * hands every entry to a {@link RouteImportFormat.Handler} as soon as it is
+ * read, so only one entry of the file is held in memory at a time. Malformed entries are
+ * reported with the line and column where they start.
+ */
+public class YamlRouteParser implements RouteImportFormat {
 
-    @SuppressWarnings("unchecked")
-    public static YamlUploadDTO parseYamlFile(InputStream inputStream) {
+    public static final String NAME = "yaml";
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public boolean supports(String filename, String contentType) {
+        return RouteImportFormat.hasExtension(filename, ".yaml", ".yml")
+                || RouteImportFormat.hasContentType(contentType, "application/x-yaml", "application/yaml",
+                        "text/yaml", "text/x-yaml");
+    }
+
+    @Override
+    public void parse(InputStream inputStream, Handler handler) {
         LoaderOptions options = new LoaderOptions();
-        Constructor constructor = new Constructor(LinkedHashMap.class, options);
-        Yaml yaml = new Yaml(constructor);
+        // the limit guards yaml.load against huge documents, events are never held all at once
+        options.setCodePointLimit(Integer.MAX_VALUE);
+        Iterator<Event> events = new Yaml(options)
+                .parse(new InputStreamReader(inputStream, StandardCharsets.UTF_8)).iterator();
+        EventReader reader = new EventReader(events, options);
         try {
-            LinkedHashMap<String, Object> content = yaml.load(inputStream);
-            YamlUploadDTO YamlUploadDTO = new YamlUploadDTO();
-            int keys = 0;
-            // Parse routes if present
-            if (content.containsKey("routes")) {
-                List<LinkedHashMap<String, Object>> rawRoutes = (List<LinkedHashMap<String, Object>>) content
-                        .get("routes");
-                YamlUploadDTO.setRoutes(rawRoutes.stream()
-                        .map(YamlRouteParser::convertToRouteDTO)
-                        .toList());
-                keys++;
+            reader.expect(Event.ID.StreamStart, "a YAML stream");
+            Event event = events.next();
+            if (event.is(Event.ID.StreamEnd)) {
+                return;
+            }
+            if (!event.is(Event.ID.DocumentStart)) {
+                throw malformed(event, "expected a YAML document");
+            }
+            event = events.next();
+            if (!event.is(Event.ID.MappingStart)) {
+                throw malformed(event, "expected a mapping of routes, coordinates and locations");
+            }
+            while (!(event = events.next()).is(Event.ID.MappingEnd)) {
+                if (!(event instanceof ScalarEvent key)) {
+                    throw malformed(event, "expected a section name");
+                }
+                switch (key.getValue()) {
+                    case "routes" -> reader.readSection("route",
+                            YamlRouteParser::convertToRouteDTO, handler::route);
+                    case "coordinates" -> reader.readSection("coordinates",
+                            YamlRouteParser::convertToCoordinatesDTO, handler::coordinates);
+                    case "locations" -> reader.readSection("location",
+                            YamlRouteParser::convertToLocationDTO, handler::location);
+                    default -> throw malformed(event, "unknown section '" + key.getValue() + "'");
+                }
+            }
+            reader.expect(Event.ID.DocumentEnd, "the end of the document");
+            reader.expect(Event.ID.StreamEnd, "a single YAML document");
+        } catch (YAMLException e) {
+            throw new IllegalArgumentException("Error parsing YAML file: " + e.getMessage(), e);
+        }
+    }
+
+    private static IllegalArgumentException malformed(Event event, String message) {
+        return malformed(event.getStartMark(), message);
+    }
+
+    private static IllegalArgumentException malformed(Mark mark, String message) {
+        return new IllegalArgumentException("Error parsing YAML file at line " + (mark.getLine() + 1)
+                + ", column " + (mark.getColumn() + 1) + ": " + message);
+    }
+
+    /**
+     * Builds one entry at a time out of parser events
+     */
+    private static final class EventReader {
+        private final Iterator<Event> events;
+        private final ScalarConstructor constructor;
+        private final Resolver resolver = new Resolver();
+        // only anchored values are kept, for aliases further down the file
+        private final Map<String, Object> anchors = new HashMap<>();
+
+        EventReader(Iterator<Event> events, LoaderOptions options) {
+            this.events = events;
+            this.constructor = new ScalarConstructor(options);
+        }
+
+        void expect(Event.ID id, String what) {
+            Event event = events.next();
+            if (!event.is(id)) {
+                throw malformed(event, "expected " + what);
             }
+        }
 
-            // Parse coordinates if present
-            if (content.containsKey("coordinates")) {
-                List<LinkedHashMap<String, Object>> rawCoordinates = (List<LinkedHashMap<String, Object>>) content
-                        .get("coordinates");
-                YamlUploadDTO.setCoordinates(rawCoordinates.stream()
-                        .map(YamlRouteParser::convertToCoordinatesDTO)
-                        .toList());
-                keys++;
+        @SuppressWarnings("unchecked")
+        <T> void readSection(String kind, Function<LinkedHashMap<String, Object>, T> converter,
+                Consumer<T> entryHandler) {
+            Event event = events.next();
+            // an empty section ("routes:") has no entries
+            if (event instanceof ScalarEvent && readValue(event) == null) {
+                return;
+            }
+            if (!event.is(Event.ID.SequenceStart)) {
+                throw malformed(event, "expected a list of " + kind + " entries");
             }
+            while (!(event = events.next()).is(Event.ID.SequenceEnd)) {
+                Mark start = event.getStartMark();
+                Object entry = readValue(event);
+                if (!(entry instanceof LinkedHashMap)) {
+                    throw malformed(start, kind + " entry must be a mapping");
+                }
+                T dto;
+                try {
+                    dto = converter.apply((LinkedHashMap<String, Object>) entry);
+                } catch (ClassCastException | NullPointerException e) {
+                    throw malformed(start, "invalid or missing field in " + kind + " entry");
+                }
+                entryHandler.accept(dto);
+            }
+        }
 
-            // Parse locations if present
-            if (content.containsKey("locations")) {
-                List<LinkedHashMap<String, Object>> rawLocations = (List<LinkedHashMap<String, Object>>) content
-                        .get("locations");
-                YamlUploadDTO.setLocations(rawLocations.stream()
-                        .map(YamlRouteParser::convertToLocationDTO)
-                        .toList());
-                keys++;
+        private Object readValue(Event event) {
+            Object value;
+            if (event instanceof ScalarEvent scalar) {
+                value = readScalar(scalar);
+            } else if (event.is(Event.ID.MappingStart)) {
+                LinkedHashMap<String, Object> map = new LinkedHashMap<>();
+                Event key;
+                while (!(key = events.next()).is(Event.ID.MappingEnd)) {
+                    map.put(String.valueOf(readValue(key)), readValue(events.next()));
+                }
+                value = map;
+            } else if (event.is(Event.ID.SequenceStart)) {
+                List<Object> list = new ArrayList<>();
+                Event item;
+                while (!(item = events.next()).is(Event.ID.SequenceEnd)) {
+                    list.add(readValue(item));
+                }
+                value = list;
+            } else if (event instanceof AliasEvent alias) {
+                if (!anchors.containsKey(alias.getAnchor())) {
+                    throw malformed(event, "unknown alias '" + alias.getAnchor() + "'");
+                }
+                return anchors.get(alias.getAnchor());
+            } else {
+                throw malformed(event, "unexpected " + event.getEventId());
             }
-            if (content.keySet().size() - keys != 0)
-                throw new RuntimeException("Error parsing YAML file: incorrect format");
-            return YamlUploadDTO;
-        } catch (Exception e) {
-            throw new RuntimeException("Error parsing YAML file: incorrect format", e);
+            String anchor = event instanceof ScalarEvent scalar ? scalar.getAnchor()
+                    : ((CollectionStartEvent) event).getAnchor();
+            if (anchor != null) {
+                anchors.put(anchor, value);
+            }
+            return value;
+        }
+
+        // resolves plain scalars to numbers, booleans and nulls the same way yaml.load does
+        private Object readScalar(ScalarEvent event) {
+            Tag tag = event.getTag() == null || "!".equals(event.getTag())
+                    ? resolver.resolve(NodeId.scalar, event.getValue(), event.getImplicit().canOmitTagInPlainScalar())
+                    : new Tag(event.getTag());
+            return constructor.construct(new ScalarNode(tag, event.getValue(), event.getStartMark(),
+                    event.getEndMark(), event.getScalarStyle()));
+        }
+    }
+
+    private static final class ScalarConstructor extends SafeConstructor {
+        ScalarConstructor(LoaderOptions options) {
+            super(options);
+        }
+
+        Object construct(ScalarNode node) {
+            return constructObject(node);
         }
     }
 
@@ -108,4 +254,4 @@ public class YamlRouteParser {
 
         return routeDTO;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,78 @@
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+CREATE INDEX IF NOT EXISTS idx_route_name_trgm ON route USING gin (name gin_trgm_ops);
+CREATE INDEX IF NOT EXISTS idx_location_lower_name ON location (lower(location_name));
+CREATE UNIQUE INDEX IF NOT EXISTS ux_route_lower_name ON route (lower(name));
+
+-- IDs of rows inserted before the switch from identity columns to sequences must not be handed out again
+SELECT setval('route_seq', (SELECT max(id) FROM route) + 50, false) WHERE (SELECT max(id) FROM route) > (SELECT last_value FROM route_seq);
+SELECT setval('coordinates_seq', (SELECT max(id) FROM coordinates) + 50, false) WHERE (SELECT max(id) FROM coordinates) > (SELECT last_value FROM coordinates_seq);
+SELECT setval('location_seq', (SELECT max(location_id) FROM location) + 50, false) WHERE (SELECT max(location_id) FROM location) > (SELECT last_value FROM location_seq);
+SELECT setval('import_history_seq', (SELECT max(id) FROM import_history) + 50, false) WHERE (SELECT max(id) FROM import_history) > (SELECT last_value FROM import_history_seq);
+
+
+-- route_audit is partitioned by month; monthly partitions are created and dropped by RouteAuditPartitionService
+DO 'BEGIN IF EXISTS (SELECT 1 FROM pg_class WHERE relname = ''route_audit'' AND relkind = ''r'') THEN ALTER TABLE route_audit RENAME TO route_audit_legacy; END IF; END';
+CREATE TABLE IF NOT EXISTS route_audit (
+    id bigserial NOT NULL,
+    route_id integer NOT NULL,
+    operation_type varchar(255) NOT NULL,
+    timestamp timestamp(6) NOT NULL,
+    performed_by_id integer NOT NULL,
+    description varchar(1000),
+    PRIMARY KEY (id, timestamp)
+) PARTITION BY RANGE (timestamp);
+CREATE TABLE IF NOT EXISTS route_audit_default PARTITION OF route_audit DEFAULT;
+CREATE INDEX IF NOT EXISTS idx_route_audit_route_ts ON route_audit (route_id, timestamp);
+CREATE INDEX IF NOT EXISTS idx_route_audit_user_ts ON route_audit (performed_by_id, timestamp);
+-- move rows of the former unpartitioned table into monthly partitions
+DO 'DECLARE m date; BEGIN IF to_regclass(''route_audit_legacy'') IS NOT NULL THEN FOR m IN SELECT generate_series(b.lo, b.hi, interval ''1 month'')::date FROM (SELECT date_trunc(''month'', min(timestamp)) AS lo, date_trunc(''month'', max(timestamp)) AS hi FROM route_audit_legacy) b LOOP EXECUTE format(''CREATE TABLE IF NOT EXISTS %I PARTITION OF route_audit FOR VALUES FROM (%L) TO (%L)'', ''route_audit_'' || to_char(m, ''YYYY_MM''), m, (m + interval ''1 month'')::date); END LOOP; INSERT INTO route_audit (id, route_id, operation_type, timestamp, performed_by_id, description) SELECT id, route_id, operation_type, timestamp, performed_by_id, description FROM route_audit_legacy; PERFORM setval(pg_get_serial_sequence(''route_audit'', ''id''), (SELECT coalesce(max(id), 0) + 1 FROM route_audit), false); DROP TABLE route_audit_legacy; END IF; END';
+
+-- Hibernate's schema update does not widen existing columns
+ALTER TABLE import_history ALTER COLUMN error_message TYPE varchar(4000);
+
+-- download URLs of import files are signed on demand instead of being stored
+-- imports from before the import queue only have the URL; their object key is its percent-decoded path after the bucket
+DO 'BEGIN IF EXISTS (SELECT 1 FROM information_schema.columns WHERE table_name = ''import_history'' AND column_name = ''file_url'') THEN UPDATE import_history h SET object_key = (SELECT convert_from(string_agg(CASE WHEN t.m[1] IS NOT NULL THEN decode(substr(t.m[1], 2), ''hex'') ELSE convert_to(t.m[2], ''UTF8'') END, ''''::bytea ORDER BY t.n), ''UTF8'') FROM regexp_matches(substring(split_part(h.file_url, ''?'', 1) FROM ''^[a-zA-Z]+://[^/]+/ta4ilka-drive/(.+)$''), ''(%[0-9A-Fa-f]{2})|([^%]+|%)'', ''g'') WITH ORDINALITY AS t(m, n)) WHERE h.object_key IS NULL AND h.file_url ~ ''^[a-zA-Z]+://[^/]+/ta4ilka-drive/.''; END IF; END';
+ALTER TABLE import_history DROP COLUMN IF EXISTS file_url;
+ALTER TABLE import_history DROP COLUMN IF EXISTS error_report_url;
+
+-- staging table of bulk imports (BulkRouteImporter); rows live only inside the import transaction
+CREATE UNLOGGED TABLE IF NOT EXISTS route_import_staging (
+    import_id bigint NOT NULL,
+    line_no integer NOT NULL,
+    kind char(1) NOT NULL,
+    name varchar(255),
+    coord_x real,
+    coord_y double precision,
+    from_name varchar(255),
+    from_x real,
+    from_y real,
+    to_name varchar(255),
+    to_x real,
+    to_y real,
+    distance integer,
+    rating integer,
+    allow_admin_editing boolean,
+    coordinates_id integer,
+    from_id integer,
+    to_id integer,
+    route_id integer,
+    PRIMARY KEY (import_id, line_no)
+);
+
+-- outbox of stored objects to remove (StorageCleanupService); rows are written in the transaction that made the objects obsolete
+CREATE TABLE IF NOT EXISTS storage_cleanup_task (
+    id bigserial PRIMARY KEY,
+    object_key varchar(1024) NOT NULL UNIQUE,
+    reason varchar(32) NOT NULL,
+    created_at timestamp(6) NOT NULL DEFAULT localtimestamp,
+    attempts integer NOT NULL DEFAULT 0,
+    next_attempt_at timestamp(6) NOT NULL DEFAULT localtimestamp,
+    last_error varchar(1000)
+);
+CREATE INDEX IF NOT EXISTS idx_storage_cleanup_task_next ON storage_cleanup_task (next_attempt_at);
+
+-- version of the route dataset (DatasetVersionService), advanced after each change; a sequence takes no row lock
+CREATE SEQUENCE IF NOT EXISTS dataset_version_seq;
+-- continue after the version of the former dataset_version row, so ETags held by clients are not handed out again
+DO 'BEGIN IF to_regclass(''dataset_version'') IS NOT NULL THEN PERFORM setval(''dataset_version_seq'', (SELECT coalesce(max(version), 0) + 1 FROM dataset_version)); DROP TABLE dataset_version; END IF; END';
@@ -0,0 +1,112 @@
+package itmo.labs;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import io.minio.MinioClient;
+import itmo.labs.model.Coordinates;
+import itmo.labs.model.Location;
+import itmo.labs.model.Role;
+import itmo.labs.model.Route;
+import itmo.labs.model.User;
+import itmo.labs.repository.RouteRepository;
+import itmo.labs.repository.UserRepository;
+
+/**
+ * Base of the tests that need the whole application and a database. All of
+ * them share one context and one container; every test starts without
+ * routes, locations or imports, users are kept. The SQL Hibernate prepares
+ * is kept by {@link StatementCapture}
+ */
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+        + "itmo.labs.StatementCapture")
+@AutoConfigureMockMvc
+@Import(TestcontainersConfiguration.class)
+public abstract class PostgresIntegrationTest {
+
+    @MockBean
+    protected MinioClient minioClient;
+
+    @Autowired
+    protected JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    protected UserRepository userRepository;
+
+    @Autowired
+    protected RouteRepository routeRepository;
+
+    @BeforeEach
+    void clearRoutes() {
+        jdbcTemplate.execute("TRUNCATE route, coordinates, location, import_history CASCADE");
+        StatementCapture.clear();
+    }
+
+    protected User user(String username) {
+        return userRepository.findByUsername(username)
+                .orElseGet(() -> userRepository.save(new User(username, "password", Set.of(Role.USER))));
+    }
+
+    /**
+     * Get the generic plan of a statement with JDBC placeholders, as
+     * PostgreSQL plans it for any parameter values
+     */
+    protected String genericPlan(String sql) {
+        StringBuilder numbered = new StringBuilder();
+        int param = 0;
+        for (char c : sql.toCharArray()) {
+            if (c == '?') {
+                numbered.append('$').append(++param);
+            } else {
+                numbered.append(c);
+            }
+        }
+        return String.join("\n", jdbcTemplate.queryForList("EXPLAIN (GENERIC_PLAN) " + numbered, String.class));
+    }
+
+    protected Location location(String name) {
+        Location location = new Location();
+        location.setName(name);
+        location.setX(1);
+        location.setY(2);
+        return location;
+    }
+
+    protected Route route(String name, int rating, User createdBy, Location from, Location to) {
+        Coordinates coordinates = new Coordinates();
+        coordinates.setX(1f);
+        coordinates.setY(2d);
+        Route route = new Route();
+        route.setName(name);
+        route.setCoordinates(coordinates);
+        route.setFrom(from);
+        route.setTo(to);
+        route.setDistance(10);
+        route.setRating(rating);
+        route.setCreatedBy(createdBy);
+        return route;
+    }
+
+    /**
+     * Store routes named prefix + 1..count with ratings 1..count, created by
+     * the given users in turn and all leading from one location to another
+     */
+    protected List<Route> seedRoutes(String prefix, int count, List<User> users, String from, String to) {
+        Location fromLocation = location(from);
+        Location toLocation = location(to);
+        List<Route> routes = new ArrayList<>();
+        for (int i = 1; i <= count; i++) {
+            routes.add(route(prefix + i, i, users.get(i % users.size()), fromLocation, toLocation));
+        }
+        return routeRepository.saveAll(routes);
+    }
+}
@@ -0,0 +1,48 @@
+package itmo.labs;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+/**
+ * Keeps the SQL Hibernate prepares, so a test can explain the statement the
+ * application really runs instead of a copy of it. PostgresIntegrationTest
+ * registers it and clears it before every test
+ */
+public class StatementCapture implements StatementInspector {
+
+    private static final List<String> STATEMENTS = new CopyOnWriteArrayList<>();
+
+    @Override
+    public String inspect(String sql) {
+        STATEMENTS.add(sql);
+        return sql;
+    }
+
+    public static void clear() {
+        STATEMENTS.clear();
+    }
+
+    /**
+     * @return the statements prepared since the last clear, in order
+     */
+    public static List<String> all() {
+        return List.copyOf(STATEMENTS);
+    }
+
+    /**
+     * Get the last prepared statement that contains a fragment
+     *
+     * @param fragment text of the statement, e.g. a table name
+     * @return the statement with its JDBC placeholders
+     */
+    public static String last(String fragment) {
+        for (int i = STATEMENTS.size() - 1; i >= 0; i--) {
+            if (STATEMENTS.get(i).contains(fragment)) {
+                return STATEMENTS.get(i);
+            }
+        }
+        throw new IllegalStateException("No statement with '" + fragment + "' was prepared");
+    }
+}
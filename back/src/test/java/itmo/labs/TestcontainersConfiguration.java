@@ -0,0 +1,23 @@
+package itmo.labs;
+
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.context.annotation.Bean;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.utility.DockerImageName;
+
+/**
+ * Runs the tests against PostgreSQL, the schema script, the trigram search
+ * and the partitioned audit table need it
+ */
+@TestConfiguration(proxyBeanMethods = false)
+public class TestcontainersConfiguration {
+
+    @Bean
+    @ServiceConnection
+    PostgreSQLContainer<?> postgresContainer() {
+        // as in spring.datasource.url, so inserts are batched the way they are in production
+        return new PostgreSQLContainer<>(DockerImageName.parse("postgres:16-alpine"))
+                .withUrlParam("reWriteBatchedInserts", "true");
+    }
+}
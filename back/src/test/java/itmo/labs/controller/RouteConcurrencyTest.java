@@ -0,0 +1,188 @@
+package itmo.labs.controller;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import itmo.labs.PostgresIntegrationTest;
+import itmo.labs.model.Route;
+
+/**
+ * Route mutations under contention at READ COMMITTED: edits of one route
+ * are decided by its version and edits of different routes never conflict,
+ * so no request fails for being concurrent and none has to be retried. A
+ * taken name or a stale version is answered with 409, never with 500
+ */
+class RouteConcurrencyTest extends PostgresIntegrationTest {
+
+    private static final int THREADS = 8;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private ExecutorService executor;
+
+    @BeforeEach
+    void startExecutor() {
+        executor = Executors.newFixedThreadPool(THREADS);
+        user("editor");
+    }
+
+    @AfterEach
+    void stopExecutor() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void staleVersionIsRejectedWithConflict() throws Exception {
+        Route route = seedRoutes("Edited route ", 1, List.of(user("editor")), "Start", "Finish").get(0);
+
+        MvcResult first = mockMvc.perform(as(put("/api/routes/" + route.getId()), body("Edited route 1", 2,
+                route.getVersion()))).andReturn();
+        MvcResult stale = mockMvc.perform(as(put("/api/routes/" + route.getId()), body("Edited route 1", 3,
+                route.getVersion()))).andReturn();
+
+        assertThat(first.getResponse().getStatus()).isEqualTo(200);
+        assertThat(version(first)).isEqualTo(route.getVersion() + 1);
+        assertThat(stale.getResponse().getStatus()).isEqualTo(409);
+        assertThat(stale.getResponse().getContentAsString()).contains("modified by another user");
+        assertThat(routeRepository.findById(route.getId()).orElseThrow().getRating()).isEqualTo(2);
+    }
+
+    @Test
+    void concurrentEditsOfOneVersionLetExactlyOneThrough() throws Exception {
+        Route route = seedRoutes("Contended route ", 1, List.of(user("editor")), "Start", "Finish").get(0);
+
+        List<Integer> statuses = concurrently(THREADS, i -> mockMvc.perform(as(put("/api/routes/" + route.getId()),
+                body("Contended route 1", i + 2, route.getVersion()))).andReturn().getResponse().getStatus());
+
+        assertThat(statuses).containsOnly(200, 409).containsOnlyOnce(200);
+        assertThat(routeRepository.findById(route.getId()).orElseThrow().getVersion())
+                .isEqualTo(route.getVersion() + 1);
+    }
+
+    @Test
+    void concurrentCreatesOfOneNameLetExactlyOneThrough() throws Exception {
+        List<MvcResult> results = concurrently(THREADS, i -> mockMvc.perform(as(post("/api/routes"),
+                body(i % 2 == 0 ? "Contested name" : "CONTESTED NAME", 5, null))).andReturn());
+
+        assertThat(results.stream().map(result -> result.getResponse().getStatus()).toList())
+                .containsOnly(201, 409).containsOnlyOnce(201);
+        assertThat(results).filteredOn(result -> result.getResponse().getStatus() == 409)
+                .allMatch(result -> contentOf(result).contains("Route with this name already exists"));
+        assertThat(jdbcTemplate.queryForObject("SELECT count(*) FROM route WHERE lower(name) = 'contested name'",
+                Long.class)).isEqualTo(1);
+    }
+
+    @Test
+    void editsOfDifferentRoutesNeverConflict() throws Exception {
+        int edits = 25;
+        List<Route> routes = seedRoutes("Own route ", THREADS, List.of(user("editor")), "Start", "Finish");
+
+        long startedAt = System.nanoTime();
+        List<List<Integer>> statuses = concurrently(THREADS, i -> {
+            Route route = routes.get(i);
+            long version = route.getVersion();
+            List<Integer> own = new ArrayList<>();
+            for (int edit = 0; edit < edits; edit++) {
+                MvcResult result = mockMvc.perform(as(put("/api/routes/" + route.getId()),
+                        body(route.getName(), edit % 10 + 1, version))).andReturn();
+                own.add(result.getResponse().getStatus());
+                if (result.getResponse().getStatus() == 200) {
+                    version = version(result);
+                }
+            }
+            return own;
+        });
+        double seconds = (System.nanoTime() - startedAt) / 1e9;
+
+        System.out.printf("%d concurrent edits of %d routes in %.2f s, %.0f edits/s%n", THREADS * edits, THREADS,
+                seconds, THREADS * edits / seconds);
+        assertThat(statuses).allSatisfy(own -> assertThat(own).hasSize(edits).containsOnly(200));
+        assertThat(routeRepository.findAllById(routes.stream().map(Route::getId).toList()))
+                .allMatch(route -> route.getVersion() == edits);
+    }
+
+    private interface Request<T> {
+        T run(int thread) throws Exception;
+    }
+
+    /**
+     * Run a request on several threads released at the same time
+     *
+     * @return the results in thread order
+     */
+    private <T> List<T> concurrently(int threads, Request<T> request) throws Exception {
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<T>> futures = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            int thread = i;
+            Callable<T> task = () -> {
+                start.await();
+                return request.run(thread);
+            };
+            futures.add(executor.submit(task));
+        }
+        start.countDown();
+        List<T> results = new ArrayList<>();
+        for (Future<T> future : futures) {
+            results.add(future.get(1, TimeUnit.MINUTES));
+        }
+        return results;
+    }
+
+    private MockHttpServletRequestBuilder as(MockHttpServletRequestBuilder request, String body) {
+        return request.with(SecurityMockMvcRequestPostProcessors.user("editor").roles("USER"))
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(body);
+    }
+
+    private String body(String name, int rating, Long version) throws Exception {
+        return objectMapper.writeValueAsString(new Edit(name, new Edit.Point(1f, 2d),
+                new Edit.Place("Start", 1f, 2f), 10, rating, version));
+    }
+
+    private long version(MvcResult result) throws Exception {
+        return objectMapper.readTree(result.getResponse().getContentAsString()).get("version").asLong();
+    }
+
+    private static String contentOf(MvcResult result) {
+        try {
+            return result.getResponse().getContentAsString();
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private record Edit(String name, Point coordinates, Place from, int distance, int rating, Long version) {
+        private record Point(float x, double y) {
+        }
+
+        private record Place(String name, float x, float y) {
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package itmo.labs.controller;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.List;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import itmo.labs.PostgresIntegrationTest;
+import jakarta.persistence.EntityManagerFactory;
+
+/**
+ * The route listings load their routes with the creators, locations and
+ * coordinates in a fixed number of statements, however many routes they
+ * return. A listing that loads an association per route runs more
+ * statements for the larger result
+ */
+class RouteListingStatementCountTest extends PostgresIntegrationTest {
+
+    private static final int ROUTES = 40;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void seed() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        seedRoutes("Listed route ", ROUTES, List.of(user("lister1"), user("lister2"), user("lister3")),
+                "Start", "Finish");
+    }
+
+    @Test
+    void routePagesRunTheSameStatementsForAnyPageSize() throws Exception {
+        long few = statements(get("/api/routes").param("size", "5"), "$.items.length()", 5);
+        long many = statements(get("/api/routes").param("size", String.valueOf(ROUTES)), "$.items.length()", ROUTES);
+
+        assertThat(many).isEqualTo(few);
+    }
+
+    @Test
+    void ratingLessThanRunsTheSameStatementsForAnyResultSize() throws Exception {
+        long few = statements(get("/api/routes/ratingLessThan/6"), "$.length()", 5);
+        long many = statements(get("/api/routes/ratingLessThan/" + (ROUTES + 1)), "$.length()", ROUTES);
+
+        assertThat(many).isEqualTo(few);
+    }
+
+    @Test
+    void searchBetweenLocationsRunsTheSameStatementsForAnyPageSize() throws Exception {
+        long few = statements(betweenLocations(5), "$.length()", 5);
+        long many = statements(betweenLocations(ROUTES), "$.length()", ROUTES);
+
+        assertThat(many).isEqualTo(few);
+    }
+
+    @Test
+    void searchByNameRunsTheSameStatementsForAnyPageSize() throws Exception {
+        long few = statements(searchByName(5), "$.length()", 5);
+        long many = statements(searchByName(ROUTES), "$.length()", ROUTES);
+
+        assertThat(many).isEqualTo(few);
+    }
+
+    private MockHttpServletRequestBuilder betweenLocations(int size) {
+        return get("/api/routes/searchBetweenLocations")
+                .param("fromLocation", "Start")
+                .param("toLocation", "Finish")
+                .param("sortBy", "rating")
+                .param("size", String.valueOf(size));
+    }
+
+    private MockHttpServletRequestBuilder searchByName(int size) {
+        return get("/api/admin/routes/searchByName")
+                .param("substring", "listed")
+                .param("size", String.valueOf(size));
+    }
+
+    /**
+     * Run a request with an empty second-level cache, so every row comes from
+     * the database
+     *
+     * @return the number of statements Hibernate prepared for it
+     */
+    private long statements(MockHttpServletRequestBuilder request, String lengthPath, int expectedLength)
+            throws Exception {
+        entityManagerFactory.getCache().evictAll();
+        statistics.clear();
+        mockMvc.perform(request.with(SecurityMockMvcRequestPostProcessors.user("lister1").roles("ADMIN")))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath(lengthPath).value(expectedLength));
+        return statistics.getPrepareStatementCount();
+    }
+}
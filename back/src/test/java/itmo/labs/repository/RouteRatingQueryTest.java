@@ -0,0 +1,82 @@
+package itmo.labs.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import itmo.labs.PostgresIntegrationTest;
+import itmo.labs.dto.RouteFilterDTO;
+import itmo.labs.model.Route;
+
+/**
+ * The rating lookups filter in SQL and are served by the rating indexes.
+ * 20000 routes are seeded with the ratings 1..1000, every rating twenty
+ * times and split evenly between two users
+ */
+class RouteRatingQueryTest extends PostgresIntegrationTest {
+
+    private static final String SEED_SQL = "INSERT INTO route (id, name, creation_date, from_location_id, distance, "
+            + "rating, created_by_id, allow_admin_editing, version) "
+            + "SELECT nextval('route_seq'), 'Rated route ' || g, localtimestamp, ?, 10, g % 1000 + 1, "
+            + "CASE WHEN g / 1000 % 2 = 0 THEN ? ELSE ? END, false, 0 FROM generate_series(1, 20000) g";
+
+    private Integer owner;
+    private Integer other;
+
+    @BeforeEach
+    void seed() {
+        owner = user("rating-owner").getId();
+        other = user("rating-other").getId();
+        Integer location = jdbcTemplate.queryForObject("INSERT INTO location (location_id, x, y, location_name) "
+                + "VALUES (nextval('location_seq'), 1, 2, 'Rated') RETURNING location_id", Integer.class);
+        jdbcTemplate.update(SEED_SQL, location, owner, other);
+        jdbcTemplate.execute("ANALYZE route");
+    }
+
+    @Test
+    void ratingLessThanReturnsOnlyLowerRatings() {
+        List<Route> routes = routeRepository.findByRatingLessThan(6);
+
+        assertThat(routes).hasSize(100).allMatch(route -> route.getRating() < 6);
+    }
+
+    @Test
+    void ratingLessThanUsesTheRatingIndex() {
+        assertThat(plan("SELECT id FROM route WHERE rating < ?", 6)).contains("idx_route_rating_");
+    }
+
+    @Test
+    void deleteByRatingRemovesOnlyTheOwnersRoutes() {
+        List<Integer> deleted = routeRepository.deleteByFilter(ownFilter(3), owner, false);
+
+        assertThat(deleted).hasSize(10);
+        assertThat(jdbcTemplate.queryForObject("SELECT count(*) FROM route WHERE rating = 3", Long.class))
+                .isEqualTo(10);
+        assertThat(jdbcTemplate.queryForObject("SELECT count(*) FROM route WHERE rating = 3 AND created_by_id = ?",
+                Long.class, other)).isEqualTo(10);
+    }
+
+    @Test
+    void deleteByRatingUsesTheRatingAndOwnerIndex() {
+        // the statement deleteByFilter runs for deleteRoutesByRating
+        List<Object> params = new ArrayList<>();
+        String sql = RouteRepositoryCustomImpl.deleteSql(ownFilter(3), owner, false, params);
+
+        assertThat(plan(sql, params.toArray())).contains("idx_route_rating_created_by");
+    }
+
+    private RouteFilterDTO ownFilter(int rating) {
+        RouteFilterDTO filter = new RouteFilterDTO();
+        filter.setRating(rating);
+        filter.setOwnerId(owner);
+        return filter;
+    }
+
+    private String plan(String sql, Object... params) {
+        return String.join("\n", jdbcTemplate.queryForList("EXPLAIN " + sql, String.class, params));
+    }
+}
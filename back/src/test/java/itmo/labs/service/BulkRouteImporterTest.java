@@ -0,0 +1,161 @@
+package itmo.labs.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import itmo.labs.PostgresIntegrationTest;
+import itmo.labs.model.User;
+import itmo.labs.utils.JsonLinesRouteParser;
+
+/**
+ * The COPY import stores a file with a fixed number of set-based
+ * statements, rejects broken files as a whole, hands out IDs Hibernate
+ * does not hand out again and hides the driver message of a name taken
+ * while it runs
+ */
+class BulkRouteImporterTest extends PostgresIntegrationTest {
+
+    private static final String ROUTE = "{\"name\": \"%s\", \"coordinates\": {\"x\": 1, \"y\": 2}, "
+            + "\"from\": {\"name\": \"Depot\", \"x\": 0, \"y\": 0}, "
+            + "\"to\": {\"name\": \"Stop %d\", \"x\": %d, \"y\": 1}, "
+            + "\"distance\": 10, \"rating\": %d, \"allowAdminEditing\": false}\n";
+
+    @Autowired
+    private BulkRouteImporter bulkRouteImporter;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate transactionTemplate;
+    private ExecutorService executor;
+    private User owner;
+
+    @BeforeEach
+    void setUp() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        executor = Executors.newFixedThreadPool(2);
+        owner = user("bulk-owner");
+    }
+
+    @AfterEach
+    void stopExecutor() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void importsEveryRouteAndStoresEqualLocationsOnce() {
+        assertThat(importFile(1, file("Bulk route ", 1000))).isEqualTo(1000);
+
+        assertThat(count("route")).isEqualTo(1000);
+        assertThat(count("coordinates")).isEqualTo(1000);
+        // one shared depot and a stop per route
+        assertThat(count("location")).isEqualTo(1001);
+        assertThat(jdbcTemplate.queryForObject("SELECT count(*) FROM route_import_staging WHERE import_id = 1",
+                Long.class)).isZero();
+    }
+
+    @Test
+    void brokenFileIsRejectedAsAWhole() {
+        routeRepository.saveAll(List.of(route("Bulk route 7", 1, owner, location("Depot"), null)));
+        String file = file("Bulk route ", 20) + String.format(ROUTE, "bulk ROUTE 3", 21, 21, 1);
+
+        assertThatThrownBy(() -> importFile(2, file))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("Route with this name already exists: Bulk route 7")
+                .hasMessageContaining("Duplicate route name found in import file: bulk ROUTE 3");
+        assertThat(count("route")).isEqualTo(1);
+    }
+
+    @Test
+    void hibernateContinuesAfterTheImportedIds() {
+        importFile(3, file("Bulk route ", 120));
+
+        routeRepository.saveAll(List.of(route("After bulk 1", 1, owner, location("Depot"), null),
+                route("After bulk 2", 1, owner, location("Depot"), null)));
+
+        assertThat(count("route")).isEqualTo(122);
+    }
+
+    @Test
+    void nameTakenDuringTheImportIsReportedWithoutTheDriverMessage() throws Exception {
+        Integer depot = jdbcTemplate.queryForObject("INSERT INTO location (location_id, x, y, location_name) "
+                + "VALUES (nextval('location_seq'), 0, 0, 'Depot') RETURNING location_id", Integer.class);
+        CountDownLatch inserted = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        // holds the name uncommitted, so the import's checks pass and its insert waits for the index entry
+        Future<?> holder = executor.submit(() -> transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.update("INSERT INTO route (id, name, creation_date, from_location_id, distance, rating, "
+                    + "created_by_id, allow_admin_editing, version) VALUES (nextval('route_seq'), 'Bulk route 2', "
+                    + "localtimestamp, ?, 10, 1, ?, false, 0)", depot, owner.getId());
+            inserted.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }));
+        inserted.await();
+        Future<Integer> importer = executor.submit(() -> importFile(4, file("Bulk route ", 5)));
+        while (jdbcTemplate.queryForObject("SELECT count(*) FROM pg_stat_activity WHERE wait_event_type = 'Lock' "
+                + "AND query LIKE 'INSERT INTO route %'", Long.class) == 0 && !importer.isDone()) {
+            Thread.sleep(20);
+        }
+        release.countDown();
+        holder.get(1, TimeUnit.MINUTES);
+
+        assertThatThrownBy(() -> importer.get(1, TimeUnit.MINUTES))
+                .cause()
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Error importing routes: Route with this name already exists");
+        assertThat(count("route")).isEqualTo(1);
+    }
+
+    @Test
+    void measuresHundredThousandRoutes() {
+        int routes = 100_000;
+        String file = file("Measured route ", routes);
+
+        long startedAt = System.nanoTime();
+        assertThat(importFile(5, file)).isEqualTo(routes);
+        double seconds = (System.nanoTime() - startedAt) / 1e9;
+
+        System.out.printf("COPY import of %d routes in %.2f s, %.0f routes/min%n", routes, seconds,
+                routes / seconds * 60);
+        assertThat(count("route")).isEqualTo(routes);
+    }
+
+    private int importFile(long importId, String file) {
+        return transactionTemplate.execute(status -> bulkRouteImporter.importFile(importId, owner,
+                new JsonLinesRouteParser(), new ByteArrayInputStream(file.getBytes(StandardCharsets.UTF_8)),
+                entries -> {
+                }));
+    }
+
+    private static String file(String prefix, int routes) {
+        StringBuilder file = new StringBuilder();
+        for (int i = 1; i <= routes; i++) {
+            file.append(String.format(ROUTE, prefix + i, i, i, i % 10 + 1));
+        }
+        return file.toString();
+    }
+
+    private long count(String table) {
+        return jdbcTemplate.queryForObject("SELECT count(*) FROM " + table, Long.class);
+    }
+}
@@ -0,0 +1,107 @@
+package itmo.labs.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import io.minio.PutObjectArgs;
+import itmo.labs.PostgresIntegrationTest;
+import itmo.labs.model.ImportHistory;
+import itmo.labs.model.ImportHistory.ImportMode;
+import itmo.labs.model.ImportHistory.ImportStatus;
+import itmo.labs.model.User;
+import itmo.labs.repository.ImportHistoryRepository;
+import itmo.labs.repository.RouteRepository;
+import itmo.labs.utils.JsonLinesRouteParser;
+
+class ChunkedRouteImporterTest extends PostgresIntegrationTest {
+
+    @SpyBean
+    private RouteRepository spiedRouteRepository;
+
+    @Autowired
+    private ChunkedRouteImporter chunkedRouteImporter;
+
+    @Autowired
+    private ImportHistoryRepository importHistoryRepository;
+
+    @AfterEach
+    void clearAuthentication() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void duplicateNameInAChunkFailsOnlyItsEntry() throws Exception {
+        User importer = user("chunk-importer");
+        seedRoutes("Taken route ", 1, List.of(importer), "Here", "There");
+        // the name is taken after the chunk was validated, so only the insert finds it
+        doReturn(List.of()).when(spiedRouteRepository).findLowerNamesIn(anyCollection());
+        when(minioClient.listObjects(any())).thenReturn(List.of());
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(importer.getUsername(), null, List.of()));
+        ImportHistory history = runningImport(importer);
+
+        String file = route("Imported route 1") + route("Taken route 1") + route("Imported route 2");
+        chunkedRouteImporter.importRoutes(history, new ByteArrayInputStream(file.getBytes(StandardCharsets.UTF_8)),
+                entries -> {
+                });
+
+        assertThat(jdbcTemplate.queryForList("SELECT name FROM route WHERE name LIKE 'Imported route %' ORDER BY name",
+                String.class)).containsExactly("Imported route 1", "Imported route 2");
+        ImportHistory finished = importHistoryRepository.findById(history.getId()).orElseThrow();
+        assertThat(finished.getStatus()).isEqualTo(ImportStatus.PARTIAL);
+        assertThat(finished.getRecordsImported()).isEqualTo(2);
+        assertThat(finished.getRecordsFailed()).isEqualTo(1);
+        assertThat(finished.getCheckpoint()).isEqualTo(3);
+        assertThat(finished.getErrorReportKey()).isEqualTo("chunk-importer_1/errors.csv");
+
+        ArgumentCaptor<PutObjectArgs> puts = ArgumentCaptor.forClass(PutObjectArgs.class);
+        verify(minioClient, atLeastOnce()).putObject(puts.capture());
+        Map<String, PutObjectArgs> stored = puts.getAllValues().stream()
+                .collect(Collectors.toMap(PutObjectArgs::object, args -> args, (first, second) -> second));
+        assertThat(stored).containsKey("chunk-importer_1/errors/0000000002");
+        String part = new String(stored.get("chunk-importer_1/errors/0000000002").stream().readAllBytes(),
+                StandardCharsets.UTF_8);
+        assertThat(part).isEqualTo("2,\"Route with this name already exists: Taken route 1\"\n");
+    }
+
+    private ImportHistory runningImport(User importer) {
+        ImportHistory history = new ImportHistory();
+        history.setTimestamp(LocalDateTime.now());
+        history.setPerformedBy(importer.getUsername());
+        history.setStatus(ImportStatus.RUNNING);
+        history.setMode(ImportMode.CHUNKED);
+        history.setFormat(JsonLinesRouteParser.NAME);
+        history.setObjectKey("chunk-importer_1/routes.jsonl");
+        history.setStartedAt(LocalDateTime.now());
+        // a fresh claim, the import workers leave it alone
+        history.setHeartbeatAt(LocalDateTime.now());
+        history.setAttempts(1);
+        return importHistoryRepository.save(history);
+    }
+
+    private static String route(String name) {
+        return "{\"name\": \"" + name + "\", \"coordinates\": {\"x\": 1, \"y\": 2}, "
+                + "\"from\": {\"name\": \"A\", \"x\": 0, \"y\": 0}, \"distance\": 10, \"rating\": 5, "
+                + "\"allowAdminEditing\": false}\n";
+    }
+}
@@ -0,0 +1,114 @@
+package itmo.labs.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.test.context.support.WithMockUser;
+
+import itmo.labs.PostgresIntegrationTest;
+import itmo.labs.StatementCapture;
+import itmo.labs.dto.CoordinatesDTO;
+import itmo.labs.dto.LocationDTO;
+import itmo.labs.dto.RouteDTO;
+import jakarta.persistence.EntityManagerFactory;
+
+/**
+ * Routes of an import take their IDs from the pooled sequences, one nextval
+ * per 50 rows, and reach the database in JDBC batches of 50 rows, so the
+ * statements grow with the number of batches instead of the number of rows
+ */
+@WithMockUser(username = "batcher")
+class RouteBatchInsertTest extends PostgresIntegrationTest {
+
+    // hibernate.jdbc.batch_size and the allocationSize of the sequences
+    private static final int BATCH = 50;
+    private static final int ROUTES = 500;
+
+    @Autowired
+    private RouteService routeService;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        user("batcher");
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @Test
+    void routesAreInsertedInBatches() {
+        StatementCapture.clear();
+        statistics.clear();
+
+        assertThat(routeService.createRoutes(routes("Batched route ", ROUTES))).isEqualTo(ROUTES);
+
+        // a route, its coordinates and two locations per entry
+        assertThat(countOf("insert into route ")).isLessThanOrEqualTo(ROUTES / BATCH);
+        assertThat(countOf("insert into coordinates ")).isLessThanOrEqualTo(ROUTES / BATCH);
+        assertThat(countOf("insert into location ")).isLessThanOrEqualTo(2 * ROUTES / BATCH);
+        assertThat(statistics.getPrepareStatementCount()).isLessThan(ROUTES / 4);
+        assertThat(jdbcTemplate.queryForObject("SELECT count(*) FROM route", Long.class)).isEqualTo(ROUTES);
+    }
+
+    @Test
+    void idsAreAllocatedInBlocks() {
+        long before = lastValue("route_seq");
+        StatementCapture.clear();
+
+        routeService.createRoutes(routes("Numbered route ", ROUTES));
+
+        assertThat(countOf("nextval('route_seq')")).isLessThanOrEqualTo(ROUTES / BATCH + 1);
+        assertThat(lastValue("route_seq") - before).isLessThanOrEqualTo(ROUTES + BATCH);
+    }
+
+    @Test
+    void batchedImportOutpacesFlushingEveryRoute() {
+        int routes = 2000;
+        long startedAt = System.nanoTime();
+        routeService.createRoutes(routes("Fast route ", routes));
+        double batched = (System.nanoTime() - startedAt) / 1e9;
+
+        startedAt = System.nanoTime();
+        for (RouteDTO route : routes("Slow route ", routes)) {
+            routeService.createRoute(route);
+        }
+        double flushed = (System.nanoTime() - startedAt) / 1e9;
+
+        System.out.printf("%d routes: %.0f routes/s in batches, %.0f routes/s with a flush per route%n", routes,
+                routes / batched, routes / flushed);
+        assertThat(jdbcTemplate.queryForObject("SELECT count(*) FROM route", Long.class)).isEqualTo(2L * routes);
+    }
+
+    private List<RouteDTO> routes(String prefix, int count) {
+        List<RouteDTO> routes = new ArrayList<>();
+        for (int i = 1; i <= count; i++) {
+            RouteDTO route = new RouteDTO();
+            route.setName(prefix + i);
+            route.setCoordinates(new CoordinatesDTO((float) i, 2d));
+            route.setFrom(new LocationDTO(null, i, 2, "From " + i));
+            route.setTo(new LocationDTO(null, 2, i, "To " + i));
+            route.setDistance(10);
+            route.setRating(i % 10 + 1);
+            routes.add(route);
+        }
+        return routes;
+    }
+
+    private long countOf(String fragment) {
+        return StatementCapture.all().stream().filter(sql -> sql.contains(fragment)).count();
+    }
+
+    private long lastValue(String sequence) {
+        return jdbcTemplate.queryForObject("SELECT last_value FROM " + sequence, Long.class);
+    }
+}
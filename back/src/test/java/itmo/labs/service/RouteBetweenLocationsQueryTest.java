@@ -0,0 +1,116 @@
+package itmo.labs.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Function;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import itmo.labs.PostgresIntegrationTest;
+import itmo.labs.StatementCapture;
+import itmo.labs.model.Location;
+import itmo.labs.model.Route;
+import itmo.labs.model.User;
+
+/**
+ * findRoutesBetweenLocations pages and sorts in PostgreSQL and gives the
+ * routes the scan over all routes it replaced gave, in the same order, and
+ * its query finds both locations through the lower(location_name) index
+ */
+class RouteBetweenLocationsQueryTest extends PostgresIntegrationTest {
+
+    private static final String SPREAD_SQL = "WITH l AS (SELECT array_agg(location_id ORDER BY location_id) ids "
+            + "FROM location), c AS (SELECT array_agg(id ORDER BY id) ids FROM coordinates) "
+            + "INSERT INTO route (id, name, creation_date, coordinates_id, from_location_id, to_location_id, "
+            + "distance, rating, created_by_id, allow_admin_editing, version) "
+            + "SELECT nextval('route_seq'), 'Spread route ' || g, localtimestamp, c.ids[g], l.ids[g % 2000 + 1], "
+            + "l.ids[g * 7 % 2000 + 1], g % 100 + 2, g % 1000 + 1, ?, false, 0 "
+            + "FROM generate_series(1, 20000) g, l, c";
+
+    @Autowired
+    private RouteService routeService;
+
+    @Test
+    void pagesMatchTheFormerInMemorySearch() {
+        seedBetween();
+
+        for (String sortBy : List.of("distance", "rating", "name")) {
+            List<Integer> paged = new ArrayList<>();
+            for (int page = 0;; page++) {
+                List<Route> routes = routeService.findRoutesBetweenLocations("harbor", "SUMMIT", sortBy, page, 7);
+                if (routes.isEmpty()) {
+                    break;
+                }
+                routes.forEach(route -> paged.add(route.getId()));
+            }
+
+            assertThat(paged).as("sorted by " + sortBy).isEqualTo(formerSearch("harbor", "SUMMIT", sortBy));
+        }
+    }
+
+    @Test
+    void queryFindsTheLocationsThroughTheLowerNameIndex() {
+        jdbcTemplate.update("INSERT INTO location (location_id, x, y, location_name) "
+                + "SELECT nextval('location_seq'), g, g, 'Place ' || g FROM generate_series(1, 2000) g");
+        jdbcTemplate.update("INSERT INTO coordinates (id, x, y) "
+                + "SELECT nextval('coordinates_seq'), g, 1 FROM generate_series(1, 20000) g");
+        jdbcTemplate.update(SPREAD_SQL, user("between-owner").getId());
+        jdbcTemplate.execute("ANALYZE location, coordinates, route");
+
+        assertThat(routeService.findRoutesBetweenLocations("place 6", "PLACE 36", "rating", 0, 5)).isNotEmpty();
+        String plan = genericPlan(StatementCapture.last("lower("));
+
+        assertThat(plan).contains("idx_location_lower_name", "idx_route_from_to").doesNotContain("Seq Scan on route");
+    }
+
+    /**
+     * Routes between two locations spelled in several cases, with equal
+     * ratings and missing distances, and routes that lead elsewhere
+     */
+    private void seedBetween() {
+        List<User> users = List.of(user("between1"), user("between2"));
+        Location harbor = location("Harbor");
+        Location summit = location("Summit");
+        Location lowerHarbor = location("harbor");
+        Location upperSummit = location("SUMMIT");
+        Location valley = location("Valley");
+        List<Route> routes = new ArrayList<>();
+        for (int i = 1; i <= 40; i++) {
+            Route route = route(String.format("Between %03d", 41 - i), i % 6 + 1, users.get(i % 2),
+                    i % 3 == 0 ? lowerHarbor : harbor, i % 4 == 0 ? upperSummit : summit);
+            route.setDistance(i % 5 == 0 ? null : i % 9 + 2);
+            routes.add(route);
+        }
+        routes.add(route("Between 100", 1, users.get(0), harbor, valley));
+        routes.add(route("Between 101", 1, users.get(0), valley, summit));
+        routes.add(route("Between 102", 1, users.get(0), harbor, null));
+        routeRepository.saveAll(routes);
+    }
+
+    /**
+     * The search findRoutesBetweenLocations ran before it moved to SQL, with
+     * the ID as the tie-breaker and missing distances last, as the query
+     * orders them
+     */
+    private List<Integer> formerSearch(String from, String to, String sortBy) {
+        Function<Route, Comparable<?>> field = switch (sortBy) {
+            case "distance" -> Route::getDistance;
+            case "rating" -> Route::getRating;
+            default -> Route::getName;
+        };
+        @SuppressWarnings("unchecked")
+        Comparator<Route> comparator = Comparator.comparing(route -> (Comparable<Object>) field.apply(route),
+                Comparator.nullsLast(Comparator.naturalOrder()));
+        return routeRepository.findAll().stream()
+                .filter(route -> route.getFrom().getName().equalsIgnoreCase(from)
+                        && route.getTo() != null
+                        && route.getTo().getName().equalsIgnoreCase(to))
+                .sorted(comparator.thenComparing(Route::getId))
+                .map(Route::getId)
+                .toList();
+    }
+}
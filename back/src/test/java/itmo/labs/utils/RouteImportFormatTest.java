@@ -0,0 +1,247 @@
+package itmo.labs.utils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowableOfType;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.IntFunction;
+
+import org.junit.jupiter.api.Test;
+
+import itmo.labs.dto.CoordinatesDTO;
+import itmo.labs.dto.LocationDTO;
+import itmo.labs.dto.RouteDTO;
+
+/**
+ * The YAML, JSON Lines and CSV formats read the same routes out of the same
+ * data, hand every route over as soon as it is read instead of after the
+ * whole file, and are measured on 100000 routes each
+ */
+class RouteImportFormatTest {
+
+    private static final int MEASURED_ROUTES = 100_000;
+
+    private final List<Sample> samples = List.of(
+            new Sample(new YamlRouteParser(), "routes:\n", RouteImportFormatTest::yamlRoute),
+            new Sample(new JsonLinesRouteParser(), "", RouteImportFormatTest::jsonRoute),
+            new Sample(new CsvRouteParser(), "name,coordinates_x,coordinates_y,from_name,from_x,from_y,"
+                    + "to_name,to_x,to_y,distance,rating,allow_admin_editing\n", RouteImportFormatTest::csvRoute));
+
+    @Test
+    void everyFormatReadsTheSameRoutes() {
+        List<String> expected = new ArrayList<>();
+        for (int i = 1; i <= 50; i++) {
+            expected.add(describe(route(i)));
+        }
+
+        for (Sample sample : samples) {
+            Collector collector = new Collector();
+            sample.format().parse(new ByteArrayInputStream(sample.file(50)), collector);
+
+            assertThat(collector.routes).as(sample.format().getName()).isEqualTo(expected);
+        }
+    }
+
+    @Test
+    void everyFormatHandsOverRoutesWhileReading() {
+        for (Sample sample : samples) {
+            // far more than any reader buffers
+            GeneratedFile file = new GeneratedFile(sample, 1_000_000);
+            RouteImportFormat.Handler stopAtFirst = new Collector() {
+                @Override
+                public void route(RouteDTO route) {
+                    throw new FirstRouteRead(route);
+                }
+            };
+
+            FirstRouteRead stopped = catchThrowableOfType(() -> sample.format().parse(file, stopAtFirst),
+                    FirstRouteRead.class);
+
+            assertThat(stopped).as(sample.format().getName()).isNotNull();
+            assertThat(describe(stopped.route)).isEqualTo(describe(route(1)));
+            assertThat(file.bytesRead).as(sample.format().getName()).isLessThan(64 * 1024);
+        }
+    }
+
+    @Test
+    void measureEveryFormat() {
+        for (Sample sample : samples) {
+            byte[] file = sample.file(MEASURED_ROUTES);
+            Collector collector = new Collector();
+
+            long startedAt = System.nanoTime();
+            sample.format().parse(new ByteArrayInputStream(file), collector);
+            double seconds = (System.nanoTime() - startedAt) / 1e9;
+
+            System.out.printf(Locale.ROOT, "%s: %d routes, %.1f MB in %.2f s, %.0f routes/s%n",
+                    sample.format().getName(), MEASURED_ROUTES, file.length / 1e6, seconds,
+                    MEASURED_ROUTES / seconds);
+            assertThat(collector.count).isEqualTo(MEASURED_ROUTES);
+        }
+    }
+
+    private static RouteDTO route(int i) {
+        RouteDTO route = new RouteDTO();
+        route.setName("Route " + i);
+        route.setCoordinates(new CoordinatesDTO(i % 180 + 0.5f, 2.25d));
+        route.setFrom(new LocationDTO(null, 1.5f, i % 90, "From " + i));
+        if (i % 3 != 0) {
+            route.setTo(new LocationDTO(null, i % 50, 3.5f, "To " + i));
+        }
+        route.setDistance(i % 1000 + 2);
+        route.setRating(i % 10 + 1);
+        route.setAllowAdminEditing(i % 2 == 0);
+        return route;
+    }
+
+    private static String yamlRoute(int i) {
+        RouteDTO route = route(i);
+        StringBuilder yaml = new StringBuilder()
+                .append("  - name: \"").append(route.getName()).append("\"\n")
+                .append("    coordinates:\n")
+                .append("      x: ").append(route.getCoordinates().getX()).append('\n')
+                .append("      y: ").append(route.getCoordinates().getY()).append('\n')
+                .append("    from:\n")
+                .append("      name: \"").append(route.getFrom().getName()).append("\"\n")
+                .append("      x: ").append(route.getFrom().getX()).append('\n')
+                .append("      y: ").append(route.getFrom().getY()).append('\n');
+        if (route.getTo() != null) {
+            yaml.append("    to:\n")
+                    .append("      name: \"").append(route.getTo().getName()).append("\"\n")
+                    .append("      x: ").append(route.getTo().getX()).append('\n')
+                    .append("      y: ").append(route.getTo().getY()).append('\n');
+        }
+        return yaml.append("    distance: ").append(route.getDistance()).append('\n')
+                .append("    rating: ").append(route.getRating()).append('\n')
+                .append("    allowAdminEditing: ").append(route.isAllowAdminEditing()).append('\n')
+                .toString();
+    }
+
+    private static String jsonRoute(int i) {
+        RouteDTO route = route(i);
+        String to = route.getTo() == null ? ""
+                : String.format(Locale.ROOT, ", \"to\": {\"name\": \"%s\", \"x\": %s, \"y\": %s}",
+                        route.getTo().getName(), route.getTo().getX(), route.getTo().getY());
+        return String.format(Locale.ROOT, "{\"name\": \"%s\", \"coordinates\": {\"x\": %s, \"y\": %s}, "
+                + "\"from\": {\"name\": \"%s\", \"x\": %s, \"y\": %s}%s, \"distance\": %d, \"rating\": %d, "
+                + "\"allowAdminEditing\": %b}\n", route.getName(), route.getCoordinates().getX(),
+                route.getCoordinates().getY(), route.getFrom().getName(), route.getFrom().getX(),
+                route.getFrom().getY(), to, route.getDistance(), route.getRating(), route.isAllowAdminEditing());
+    }
+
+    private static String csvRoute(int i) {
+        RouteDTO route = route(i);
+        LocationDTO to = route.getTo();
+        return String.join(",", route.getName(), String.valueOf(route.getCoordinates().getX()),
+                String.valueOf(route.getCoordinates().getY()), route.getFrom().getName(),
+                String.valueOf(route.getFrom().getX()), String.valueOf(route.getFrom().getY()),
+                to == null ? "" : to.getName(), to == null ? "" : String.valueOf(to.getX()),
+                to == null ? "" : String.valueOf(to.getY()), String.valueOf(route.getDistance()),
+                String.valueOf(route.getRating()), String.valueOf(route.isAllowAdminEditing())) + "\n";
+    }
+
+    private static String describe(RouteDTO route) {
+        return route.getName() + " " + describe(route.getCoordinates()) + " " + describe(route.getFrom()) + " "
+                + describe(route.getTo()) + " " + route.getDistance() + " " + route.getRating() + " "
+                + route.isAllowAdminEditing();
+    }
+
+    private static String describe(CoordinatesDTO coordinates) {
+        return "(" + coordinates.getX() + ", " + coordinates.getY() + ")";
+    }
+
+    private static String describe(LocationDTO location) {
+        return location == null ? "-" : location.getName() + "(" + location.getX() + ", " + location.getY() + ")";
+    }
+
+    /**
+     * A format with a file of routes written in it
+     */
+    private record Sample(RouteImportFormat format, String header, IntFunction<String> route) {
+
+        byte[] file(int routes) {
+            ByteArrayOutputStream file = new ByteArrayOutputStream();
+            file.writeBytes(header.getBytes(StandardCharsets.UTF_8));
+            for (int i = 1; i <= routes; i++) {
+                file.writeBytes(route.apply(i).getBytes(StandardCharsets.UTF_8));
+            }
+            return file.toByteArray();
+        }
+    }
+
+    /**
+     * Writes the routes of a file only when they are read and counts the
+     * bytes read
+     */
+    private static final class GeneratedFile extends InputStream {
+        private final Sample sample;
+        private final int routes;
+        private byte[] current;
+        private int position;
+        private int next = 1;
+        private long bytesRead;
+
+        GeneratedFile(Sample sample, int routes) {
+            this.sample = sample;
+            this.routes = routes;
+            this.current = sample.header().getBytes(StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public int read() {
+            byte[] one = new byte[1];
+            return read(one, 0, 1) == -1 ? -1 : one[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            while (position == current.length) {
+                if (next > routes) {
+                    return -1;
+                }
+                current = sample.route().apply(next++).getBytes(StandardCharsets.UTF_8);
+                position = 0;
+            }
+            int n = Math.min(len, current.length - position);
+            System.arraycopy(current, position, b, off, n);
+            position += n;
+            bytesRead += n;
+            return n;
+        }
+    }
+
+    private static class Collector implements RouteImportFormat.Handler {
+        final List<String> routes = new ArrayList<>();
+        int count;
+
+        @Override
+        public void coordinates(CoordinatesDTO coordinates) {
+        }
+
+        @Override
+        public void location(LocationDTO location) {
+        }
+
+        @Override
+        public void route(RouteDTO route) {
+            if (count++ < 1000) {
+                routes.add(describe(route));
+            }
+        }
+    }
+
+    private static final class FirstRouteRead extends RuntimeException {
+        private final transient RouteDTO route;
+
+        FirstRouteRead(RouteDTO route) {
+            super("first route read", null, false, false);
+            this.route = route;
+        }
+    }
+}
@@ -1,12 +1,19 @@
 import api from "./axios";
-import { CoordinatesDTO, LocationDTO, RouteDTO } from "../types";
+import { CoordinatesDTO, LocationDTO, PageDTO, RouteDTO } from "../types";
 import { ImportHistory } from "../types/ImportHistory";
 
-export const getAllRoutes = async (): Promise<RouteDTO[]> => {
-  const response = await api.get<RouteDTO[]>("/routes");
+// Gets one page of a keyset-paginated endpoint; pass the "next" cursor of a page to get the page after it
+const getPage = async <T>(url: string, after: string | null, size?: number): Promise<PageDTO<T>> => {
+  const response = await api.get<PageDTO<T>>(url, {
+    params: { ...(after ? { after } : {}), ...(size ? { size } : {}) },
+  });
   return response.data;
 };
 
+export const getRoutesPage = async (after: string | null, size?: number): Promise<PageDTO<RouteDTO>> => {
+  return getPage<RouteDTO>("/routes", after, size);
+};
+
 export const createRoute = async (route: RouteDTO): Promise<RouteDTO> => {
   const response = await api.post<RouteDTO>("/routes", route);
   return response.data;
@@ -29,9 +36,8 @@ export const getAllCoordinates = async (): Promise<CoordinatesDTO[]> => {
   return response.data;
 };
 
-export const getAllLocations = async (): Promise<LocationDTO[]> => {
-  const response = await api.get<LocationDTO[]>("/locations");
-  return response.data;
+export const getLocationsPage = async (after: string | null, size?: number): Promise<PageDTO<LocationDTO>> => {
+  return getPage<LocationDTO>("/locations", after, size);
 };
 
 export const importRoutes = async (file: File): Promise<string> => {
@@ -45,7 +51,12 @@ export const importRoutes = async (file: File): Promise<string> => {
   });
   return response.data;
 };
-export const getImportHistory = async (): Promise<ImportHistory[]> => {
-  const response = await api.get<ImportHistory[]>("/routes/import");
+export const getImportHistoryPage = async (after: string | null, size?: number): Promise<PageDTO<ImportHistory>> => {
+  return getPage<ImportHistory>("/routes/import", after, size);
+};
+
+// download URLs are signed on demand and only valid for a while, so they are fetched on click
+export const getImportDownloadUrl = async (id: number, errorReport: boolean): Promise<string> => {
+  const response = await api.get(`/routes/import/${id}/${errorReport ? "errors" : "file"}`);
   return response.data;
 };
\ No newline at end of file
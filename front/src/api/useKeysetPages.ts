@@ -0,0 +1,42 @@
+import { useCallback, useRef, useState } from "react";
+import { PageDTO } from "../types";
+
+// Loads a keyset-paginated list one page at a time, so rows are only requested once they are shown.
+// fetchPage must be stable (defined outside the component).
+export const useKeysetPages = <T>(fetchPage: (after: string | null) => Promise<PageDTO<T>>) => {
+  const [items, setItems] = useState<T[]>([]);
+  const [next, setNext] = useState<string | null>(null);
+  const loaded = useRef(0);
+  const loading = useRef(false);
+
+  // Fetches the first pages again, as many rows as were loaded before
+  const reload = useCallback(async () => {
+    const rows: T[] = [];
+    let after: string | null = null;
+    do {
+      const page: PageDTO<T> = await fetchPage(after);
+      rows.push(...page.items);
+      after = page.next;
+    } while (after && rows.length < loaded.current);
+    loaded.current = rows.length;
+    setItems(rows);
+    setNext(after);
+  }, [fetchPage]);
+
+  const loadMore = useCallback(async () => {
+    if (next === null || loading.current) {
+      return;
+    }
+    loading.current = true;
+    try {
+      const page = await fetchPage(next);
+      loaded.current += page.items.length;
+      setItems((prev) => [...prev, ...page.items]);
+      setNext(page.next);
+    } finally {
+      loading.current = false;
+    }
+  }, [fetchPage, next]);
+
+  return { items, setItems, hasMore: next !== null, reload, loadMore };
+};
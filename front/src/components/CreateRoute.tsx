@@ -1,9 +1,10 @@
 import React, { useState, useEffect } from "react";
 import {
   createRoute,
-  getAllLocations,
+  getLocationsPage,
   getAllCoordinates,
 } from "../api/routeService";
+import { useKeysetPages } from "../api/useKeysetPages";
 import { RouteDTO, CoordinatesDTO, LocationDTO } from "../types";
 
 interface CreateRouteProps {
@@ -11,6 +12,8 @@ interface CreateRouteProps {
   onCreate: () => void;
 }
 
+const fetchLocationPage = (after: string | null) => getLocationsPage(after);
+
 const CreateRoute: React.FC<CreateRouteProps> = ({ onClose, onCreate }) => {
   const [name, setName] = useState("");
   const [distance, setDistance] = useState<number | undefined>(undefined);
@@ -25,7 +28,12 @@ const CreateRoute: React.FC<CreateRouteProps> = ({ onClose, onCreate }) => {
   const [toName, setToName] = useState("");
   const [allowAdminEditing, setAllowAdminEditing] = useState(false);
   const [error, setError] = useState<string | null>(null);
-  const [existingLocations, setExistingLocations] = useState<LocationDTO[]>([]);
+  const {
+    items: existingLocations,
+    hasMore: moreLocations,
+    reload: reloadLocations,
+    loadMore: loadMoreLocations,
+  } = useKeysetPages(fetchLocationPage);
   const [existingCoordinates, setExistingCoordinates] = useState<
     CoordinatesDTO[]
   >([]);
@@ -33,8 +41,7 @@ const CreateRoute: React.FC<CreateRouteProps> = ({ onClose, onCreate }) => {
   useEffect(() => {
     const fetchLocations = async () => {
       try {
-        const locations = await getAllLocations();
-        setExistingLocations(locations);
+        await reloadLocations();
       } catch (err) {
         console.error("Failed to fetch locations", err);
       }
@@ -51,7 +58,15 @@ const CreateRoute: React.FC<CreateRouteProps> = ({ onClose, onCreate }) => {
 
     fetchLocations();
     fetchCoordinates();
-  }, []);
+  }, [reloadLocations]);
+
+  const fetchMoreLocations = async () => {
+    try {
+      await loadMoreLocations();
+    } catch (err) {
+      console.error("Failed to fetch locations", err);
+    }
+  };
 
   const handleSubmit = async () => {
     if (!name.trim()) {
@@ -176,6 +191,11 @@ const CreateRoute: React.FC<CreateRouteProps> = ({ onClose, onCreate }) => {
           </option>
         ))}
       </select>
+      {moreLocations && (
+        <button type="button" onClick={fetchMoreLocations}>
+          Load more locations
+        </button>
+      )}
       <input
         type="number"
         value={fromX}
@@ -214,6 +234,11 @@ const CreateRoute: React.FC<CreateRouteProps> = ({ onClose, onCreate }) => {
           </option>
         ))}
       </select>
+      {moreLocations && (
+        <button type="button" onClick={fetchMoreLocations}>
+          Load more locations
+        </button>
+      )}
       <input
         type="number"
         value={toX}
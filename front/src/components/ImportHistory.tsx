@@ -1,32 +1,69 @@
-import React, { useEffect, useState } from "react";
-import { getImportHistory } from "../api/routeService";
+import React, { useCallback, useEffect, useState } from "react";
+import { getImportDownloadUrl, getImportHistoryPage } from "../api/routeService";
+import { useKeysetPages } from "../api/useKeysetPages";
 import RealTimeImportHistory from "./RealTimeImportHistory";
 import { ImportHistory } from "../types/ImportHistory";
 import "./ImportHistory.css";
 
+const fetchImportHistoryPage = (after: string | null) => getImportHistoryPage(after);
+
 const ImportHistoryComponent: React.FC = () => {
-  const [importHistory, setImportHistory] = useState<ImportHistory[]>([]);
+  const {
+    items: importHistory,
+    setItems: setImportHistory,
+    hasMore,
+    reload,
+    loadMore,
+  } = useKeysetPages(fetchImportHistoryPage);
   const [error, setError] = useState<string | null>(null);
 
-  const fetchImportHistory = async () => {
+  const fetchImportHistory = useCallback(async () => {
     try {
-      const history = await getImportHistory();
-      setImportHistory(history);
+      await reload();
+    } catch (err) {
+      console.error("Failed to fetch import history", err);
+      setError("Failed to fetch import history.");
+    }
+  }, [reload]);
+
+  const fetchMoreImportHistory = async () => {
+    try {
+      await loadMore();
     } catch (err) {
       console.error("Failed to fetch import history", err);
       setError("Failed to fetch import history.");
     }
   };
 
+  // progress updates of running imports arrive every second, apply them in place
+  const handleUpdate = useCallback((update: ImportHistory) => {
+    if (update.status === "RUNNING" && update.recordsProcessed != null) {
+      setImportHistory((prev) =>
+        prev.map((history) => (history.id === update.id ? update : history))
+      );
+    } else {
+      fetchImportHistory();
+    }
+  }, [fetchImportHistory]);
+
   useEffect(() => {
     fetchImportHistory();
-  }, []);
+  }, [fetchImportHistory]);
+
+  const openDownload = async (id: number, errorReport: boolean) => {
+    try {
+      window.open(await getImportDownloadUrl(id, errorReport), "_blank", "noopener,noreferrer");
+    } catch (err) {
+      console.error("Failed to get download URL", err);
+      setError("Failed to get download URL.");
+    }
+  };
 
   return (
     <div className="import-history">
       <h2>Import History</h2>
       {error && <p className="error-message">{error}</p>}
-      <RealTimeImportHistory onUpdate={fetchImportHistory} />
+      <RealTimeImportHistory onUpdate={handleUpdate} />
       <table>
         <thead>
           <tr>
@@ -48,19 +85,32 @@ const ImportHistoryComponent: React.FC = () => {
                 {history.status}
               </td>
               <td>{history.performedBy}</td>
-              <td>{history.recordsImported}</td>
+              <td>
+                {history.status === "RUNNING" && history.recordsProcessed != null
+                  ? `${history.recordsProcessed} (${Math.round(history.recordsPerSecond ?? 0)}/s` +
+                    (history.etaSeconds != null ? `, ~${history.etaSeconds}s left)` : ")")
+                  : history.recordsImported}
+                {history.recordsFailed > 0 && `, failed: ${history.recordsFailed}`}
+                {history.recordsSkipped > 0 && `, skipped: ${history.recordsSkipped}`}
+              </td>
               <td className="error-message">{history.errorMessage || "N/A"}</td>
               <td>
-                {history.fileUrl && (
-                  <a href={history.fileUrl} target="_blank" rel="noopener noreferrer">
+                {history.fileAvailable && (
+                  <button className="link-button" onClick={() => openDownload(history.id, false)}>
                     View File
-                  </a>
+                  </button>
+                )}
+                {history.errorReportAvailable && (
+                  <button className="link-button" onClick={() => openDownload(history.id, true)}>
+                    Error Report
+                  </button>
                 )}
               </td>
             </tr>
           ))}
         </tbody>
       </table>
+      {hasMore && <button onClick={fetchMoreImportHistory}>Load more</button>}
     </div>
   );
 };
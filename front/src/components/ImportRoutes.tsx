@@ -2,11 +2,76 @@ import React, { useState } from "react";
 import api from "../api/axios";
 import "./ImportRoutes.css";
 
+// larger files are sent in chunks that are retried on their own
+const RESUMABLE_THRESHOLD = 32 * 1024 * 1024;
+const CHUNK_SIZE = 8 * 1024 * 1024;
+const CHUNK_RETRIES = 5;
+
+type ImportMode = "" | "ENTITY" | "BULK" | "CHUNKED";
+
+const uploadResumable = async (file: File, mode: ImportMode, force: boolean) => {
+  const created = await api.post("/routes/import/uploads", null, {
+    params: { filename: file.name, size: file.size, mode: mode || undefined, force },
+  });
+  if (created.status === 200) {
+    // the same file was imported before
+    return created.data;
+  }
+  const id = created.data.id;
+  let offset: number = created.data.offset;
+  let failures = 0;
+  while (true) {
+    const end = Math.min(offset + CHUNK_SIZE, file.size);
+    try {
+      const response = await api.put(`/routes/import/uploads/${id}`, file.slice(offset, end), {
+        headers: {
+          "Content-Type": "application/octet-stream",
+          "Content-Range": `bytes ${offset}-${end - 1}/${file.size}`,
+        },
+      });
+      failures = 0;
+      if (response.data.importHistory) {
+        return response.data.importHistory;
+      }
+      offset = response.data.offset;
+    } catch (err: any) {
+      if (err.response?.status === 409) {
+        // the server has a different offset, continue from there
+        offset = err.response.data.offset;
+        if (err.response.data.importHistory) {
+          return err.response.data.importHistory;
+        }
+        continue;
+      }
+      if (err.response?.status === 400 || ++failures > CHUNK_RETRIES) {
+        throw err;
+      }
+      await new Promise((resolve) => setTimeout(resolve, 1000 * failures));
+      offset = (await api.get(`/routes/import/uploads/${id}`)).data.offset;
+    }
+  }
+};
+
+// lets the server answer with an earlier import of the same file before it is sent
+const sha256 = async (file: File) => {
+  if (!window.crypto?.subtle) {
+    return undefined;
+  }
+  const digest = await window.crypto.subtle.digest("SHA-256", await file.arrayBuffer());
+  return Array.from(new Uint8Array(digest))
+    .map((b) => b.toString(16).padStart(2, "0"))
+    .join("");
+};
+
 const ImportRoutes: React.FC = () => {
   const [file, setFile] = useState<File | null>(null);
   const [message, setMessage] = useState<string | null>(null);
   const [error, setError] = useState<string | null>(null);
   const [isLoading, setIsLoading] = useState(false);
+  // empty: chosen by the server from the file size
+  const [mode, setMode] = useState<ImportMode>("");
+  // import again a file that was imported a moment ago
+  const [force, setForce] = useState(false);
 
   const handleFileChange = (e: React.ChangeEvent<HTMLInputElement>) => {
     if (e.target.files && e.target.files[0]) {
@@ -23,16 +88,33 @@ const ImportRoutes: React.FC = () => {
     }
 
     setIsLoading(true);
-    const formData = new FormData();
-    formData.append("file", file);
 
     try {
-      const response = await api.post("/routes/import", formData, {
-        headers: {
-          "Content-Type": "multipart/form-data",
-        },
-      });
-      setMessage(response.data);
+      let queued;
+      let duplicate = false;
+      if (file.size >= RESUMABLE_THRESHOLD) {
+        queued = await uploadResumable(file, mode, force);
+      } else {
+        // the file is sent as the raw body and streamed to storage as it arrives
+        const response = await api.post("/routes/import/stream", file, {
+          headers: {
+            "Content-Type": file.type || "application/octet-stream",
+          },
+          params: {
+            filename: file.name,
+            mode: mode || undefined,
+            force,
+            sha256: force ? undefined : await sha256(file),
+          },
+        });
+        queued = response.data;
+        duplicate = response.status === 200;
+      }
+      setMessage(
+        duplicate
+          ? `Этот файл уже импортирован (импорт #${queued.id}).`
+          : `Импорт #${queued.id} поставлен в очередь, прогресс — в истории импорта.`
+      );
       setError(null);
       setFile(null);
       // Reset the file input
@@ -54,13 +136,23 @@ const ImportRoutes: React.FC = () => {
           Выберите файл
           <input
             type="file"
-            accept=".yaml,.yml"
+            accept=".yaml,.yml,.jsonl,.ndjson,.csv,.gz,.zst"
             onChange={handleFileChange}
           />
         </label>
         <span className="file-name">
           {file ? file.name : 'Файл не выбран'}
         </span>
+        <select value={mode} onChange={(e) => setMode(e.target.value as ImportMode)}>
+          <option value="">Режим по размеру файла</option>
+          <option value="ENTITY">Весь файл одной транзакцией</option>
+          <option value="BULK">Быстрый импорт (COPY)</option>
+          <option value="CHUNKED">По частям, с отчётом об ошибках</option>
+        </select>
+        <label>
+          <input type="checkbox" checked={force} onChange={(e) => setForce(e.target.checked)} />
+          Импортировать повторно
+        </label>
         <button 
           onClick={handleImport} 
           disabled={!file || isLoading}
@@ -8,7 +8,8 @@ import {
   useMap,
 } from "react-leaflet";
 import L from "leaflet";
-import { getAllRoutes, updateRoute } from "../api/routeService";
+import { getRoutesPage, updateRoute } from "../api/routeService";
+import { useKeysetPages } from "../api/useKeysetPages";
 import { RouteDTO } from "../types";
 import "./MapView.css";
 
@@ -64,8 +65,10 @@ const SetViewOnUserLocation: React.FC<{ position: [number, number] }> = ({
   return null;
 };
 
+const fetchRoutePage = (after: string | null) => getRoutesPage(after, 200);
+
 const MapView: React.FC = () => {
-  const [routes, setRoutes] = useState<RouteDTO[]>([]);
+  const { items: routes, setItems: setRoutes, hasMore, reload, loadMore } = useKeysetPages(fetchRoutePage);
   const [error, setError] = useState<string | null>(null);
   const [userPosition, setUserPosition] = useState<[number, number] | null>(
     null
@@ -74,8 +77,7 @@ const MapView: React.FC = () => {
   useEffect(() => {
     const fetchRoutesData = async () => {
       try {
-        const routeList = await getAllRoutes();
-        setRoutes(routeList);
+        await reload();
       } catch (err) {
         console.error("Failed to fetch routes", err);
         setError("Failed to fetch routes.");
@@ -83,7 +85,16 @@ const MapView: React.FC = () => {
     };
 
     fetchRoutesData();
-  }, []);
+  }, [reload]);
+
+  const fetchMoreRoutes = async () => {
+    try {
+      await loadMore();
+    } catch (err) {
+      console.error("Failed to fetch routes", err);
+      setError("Failed to fetch routes.");
+    }
+  };
 
   useEffect(() => {
     if (navigator.geolocation) {
@@ -227,6 +238,11 @@ const MapView: React.FC = () => {
           </React.Fragment>
         );
       })}
+      {hasMore && (
+        <button className="map-load-more" onClick={fetchMoreRoutes}>
+          Load more routes
+        </button>
+      )}
       {/* Current user location marker */}
       {userPosition && (
         <Marker
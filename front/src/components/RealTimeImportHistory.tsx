@@ -1,9 +1,10 @@
 import React, { useEffect, useState } from "react";
 import { Client } from "@stomp/stompjs";
 import SockJS from "sockjs-client";
+import { ImportHistory } from "../types/ImportHistory";
 
 interface RealTimeImportHistoryProps {
-  onUpdate: () => void;
+  onUpdate: (update: ImportHistory) => void;
 }
 
 const RealTimeImportHistory: React.FC<RealTimeImportHistoryProps> = ({ onUpdate }) => {
@@ -28,7 +29,7 @@ const RealTimeImportHistory: React.FC<RealTimeImportHistoryProps> = ({ onUpdate
       console.log("Connected to STOMP for import history");
       newClient.subscribe("/topic/import-history", (message) => {
         console.log("Received import history update:", message.body);
-        onUpdate();
+        onUpdate(JSON.parse(message.body));
       });
     };
 
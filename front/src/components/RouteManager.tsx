@@ -1,13 +1,17 @@
 import React, { useEffect, useState } from "react";
-import { getAllRoutes, deleteRoute } from "../api/routeService";
+import { getRoutesPage, deleteRoute } from "../api/routeService";
+import { useKeysetPages } from "../api/useKeysetPages";
 import { RouteDTO } from "../types";
 import RealTimeRoutes from "./RealTimeRoutes";
 import CreateRoute from "./CreateRoute";
 import UpdateRoute from "./UpdateRoute";
 import "./RouteManager.css";
 
+// one request fills several table pages; the next one is only loaded when the user pages past them
+const fetchRoutePage = (after: string | null) => getRoutesPage(after, 48);
+
 const RouteManager: React.FC = () => {
-  const [routes, setRoutes] = useState<RouteDTO[]>([]);
+  const { items: routes, setItems: setRoutes, hasMore, reload, loadMore } = useKeysetPages(fetchRoutePage);
   const [error, setError] = useState<string | null>(null);
   const [currentPage, setCurrentPage] = useState(1);
   const [routesPerPage] = useState(8);
@@ -38,8 +42,16 @@ const RouteManager: React.FC = () => {
 
   const fetchRoutes = async () => {
     try {
-      const routeList = await getAllRoutes();
-      setRoutes(routeList);
+      await reload();
+    } catch (err) {
+      console.error("Failed to fetch routes", err);
+      setError("Failed to fetch routes.");
+    }
+  };
+
+  const fetchMoreRoutes = async () => {
+    try {
+      await loadMore();
     } catch (err) {
       console.error("Failed to fetch routes", err);
       setError("Failed to fetch routes.");
@@ -158,6 +170,12 @@ const RouteManager: React.FC = () => {
 
   const paginate = (pageNumber: number) => setCurrentPage(pageNumber);
 
+  const showMore = async () => {
+    const nextPage = Math.ceil(sortedRoutes.length / routesPerPage) + 1;
+    await fetchMoreRoutes();
+    setCurrentPage(nextPage);
+  };
+
   return (
     <div className="route-manager">
       <h1>Route Manager</h1>
@@ -166,6 +184,7 @@ const RouteManager: React.FC = () => {
       {/* Filter Section */}
       <div className="filters">
         <h3>Filters</h3>
+        <p>Filters and sorting apply to the routes loaded so far.</p>
         <input
           type="text"
           placeholder="Filter by ID"
@@ -288,6 +307,8 @@ const RouteManager: React.FC = () => {
         totalRoutes={sortedRoutes.length}
         paginate={paginate}
         currentPage={currentPage}
+        hasMore={hasMore}
+        onMore={showMore}
         error={error}
       />
       {showCreate && (
@@ -313,8 +334,10 @@ const Pagination: React.FC<{
   totalRoutes: number;
   paginate: (pageNumber: number) => void;
   currentPage: number;
+  hasMore: boolean;
+  onMore: () => void;
   error: string | null;
-}> = ({ routesPerPage, totalRoutes, paginate, currentPage, error }) => {
+}> = ({ routesPerPage, totalRoutes, paginate, currentPage, hasMore, onMore, error }) => {
   const pageNumbers = [];
 
   for (let i = 1; i <= Math.ceil(totalRoutes / routesPerPage); i++) {
@@ -331,6 +354,13 @@ const Pagination: React.FC<{
             </a>
           </li>
         ))}
+        {hasMore && (
+          <li>
+            <a onClick={onMore} href="#!">
+              More
+            </a>
+          </li>
+        )}
       </ul>
       {error && <p style={{ color: "red" }}>{error}</p>}
     </nav>
@@ -1,9 +1,10 @@
 import React, { useState, useEffect } from "react";
 import {
   updateRoute,
-  getAllLocations,
+  getLocationsPage,
   getAllCoordinates,
 } from "../api/routeService";
+import { useKeysetPages } from "../api/useKeysetPages";
 import { RouteDTO, CoordinatesDTO, LocationDTO } from "../types";
 
 interface UpdateRouteProps {
@@ -12,6 +13,8 @@ interface UpdateRouteProps {
   onUpdate: () => void;
 }
 
+const fetchLocationPage = (after: string | null) => getLocationsPage(after);
+
 const UpdateRoute: React.FC<UpdateRouteProps> = ({
   route,
   onClose,
@@ -32,7 +35,12 @@ const UpdateRoute: React.FC<UpdateRouteProps> = ({
     route.allowAdminEditing
   );
   const [error, setError] = useState<string | null>(null);
-  const [existingLocations, setExistingLocations] = useState<LocationDTO[]>([]);
+  const {
+    items: existingLocations,
+    hasMore: moreLocations,
+    reload: reloadLocations,
+    loadMore: loadMoreLocations,
+  } = useKeysetPages(fetchLocationPage);
   const [existingCoordinates, setExistingCoordinates] = useState<
     CoordinatesDTO[]
   >([]);
@@ -40,8 +48,7 @@ const UpdateRoute: React.FC<UpdateRouteProps> = ({
   useEffect(() => {
     const fetchLocations = async () => {
       try {
-        const locations = await getAllLocations();
-        setExistingLocations(locations);
+        await reloadLocations();
       } catch (err) {
         console.error("Failed to fetch locations", err);
       }
@@ -58,7 +65,15 @@ const UpdateRoute: React.FC<UpdateRouteProps> = ({
 
     fetchLocations();
     fetchCoordinates();
-  }, []);
+  }, [reloadLocations]);
+
+  const fetchMoreLocations = async () => {
+    try {
+      await loadMoreLocations();
+    } catch (err) {
+      console.error("Failed to fetch locations", err);
+    }
+  };
 
   const handleSubmit = async () => {
     if (!name.trim()) {
@@ -184,6 +199,11 @@ const UpdateRoute: React.FC<UpdateRouteProps> = ({
           </option>
         ))}
       </select>
+      {moreLocations && (
+        <button type="button" onClick={fetchMoreLocations}>
+          Load more locations
+        </button>
+      )}
       <input
         type="number"
         value={fromX}
@@ -222,6 +242,11 @@ const UpdateRoute: React.FC<UpdateRouteProps> = ({
           </option>
         ))}
       </select>
+      {moreLocations && (
+        <button type="button" onClick={fetchMoreLocations}>
+          Load more locations
+        </button>
+      )}
       <input
         type="number"
         value={toX}
@@ -1,9 +1,18 @@
 export interface ImportHistory {
     id: number;
     timestamp: string;
-    status: "SUCCESS" | "PENDING" | "FAILURE";
+    status: "SUCCESS" | "PENDING" | "RUNNING" | "PARTIAL" | "FAILURE";
     performedBy: string;
     recordsImported: number;
+    recordsFailed: number;
+    recordsSkipped: number;
     errorMessage: string | null;
-    fileUrl: string | undefined;
+    fileAvailable: boolean;
+    errorReportAvailable: boolean;
+    mode?: "ENTITY" | "BULK" | "CHUNKED" | null;
+    contentHash?: string | null;
+    // only in progress updates of a running import
+    recordsProcessed?: number | null;
+    recordsPerSecond?: number | null;
+    etaSeconds?: number | null;
   }
\ No newline at end of file
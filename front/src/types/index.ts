@@ -10,6 +10,12 @@ export interface RouteDTO {
   createdById?: number;
   createdByUsername?: string;
   allowAdminEditing: boolean;
+  version?: number;
+}
+
+export interface PageDTO<T> {
+  items: T[];
+  next: string | null;
 }
 
 export interface CoordinatesDTO {